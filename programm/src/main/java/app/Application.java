@@ -142,6 +142,8 @@ public class Application implements Consumer<Event> {
 
         // делаем окно видимым
         window.setVisible(true);
+        // рисуем первый кадр, дальше кадры рисуются только по запросу
+        FrameScheduler.start(window);
     }
 
     /**
@@ -156,11 +158,13 @@ public class Application implements Consumer<Event> {
             // завершаем работу приложения
             App.terminate();
         } else if (e instanceof EventWindowCloseRequest) {
+            FrameScheduler.stop();
             window.close();
         } else if (e instanceof EventFrame) {
-            // запускаем рисование кадра
-            window.requestFrame();
+            // новый кадр запрашивается только при изменениях
+            return;
         } else if (e instanceof EventFrameSkija ee) {
+            FrameScheduler.framePainted();
             // получаем поверхность рисования
             Surface s = ee.getSurface();
             // очищаем её канвас заданным цветом
@@ -172,10 +176,20 @@ public class Application implements Consumer<Event> {
                 if (eventKey.isModifierDown(MODIFIER))
                     // разбираем, какую именно кнопку нажали
                     switch (eventKey.getKey()) {
-                        case W -> window.close();
+                        case W -> {
+                            FrameScheduler.stop();
+                            window.close();
+                        }
                         case H -> window.minimize();
                         case S -> PanelRendering.save();
                         case O -> PanelRendering.load();
+                        case R -> PanelRendering.solveFromFile("src/main/resources/conf.json");
+                        case T -> PanelRendering.solveTopAsync(Task.TOP_CHORDS_CNT);
+                        case K -> PanelLog.info(FrameScheduler.getStats());
+                        case C -> PanelRendering.cancel();
+                        case EQUALS -> PanelRendering.task.zoom(1);
+                        case MINUS -> PanelRendering.task.zoom(-1);
+                        case DIGIT0 -> PanelRendering.task.resetView();
                         case DIGIT1 -> {
                             if (maximizedWindow)
                                 window.restore();
@@ -188,6 +202,7 @@ public class Application implements Consumer<Event> {
                 else
                     switch (eventKey.getKey()) {
                         case ESCAPE -> {
+                            FrameScheduler.stop();
                             window.close();
                             // завершаем обработку, иначе уже разрушенный контекст
                             // будет передан панелям
@@ -202,6 +217,9 @@ public class Application implements Consumer<Event> {
         panelControl.accept(e);
         panelRendering.accept(e);
         panelLog.accept(e);
+        // события ввода и изменения окна могут поменять картинку
+        if (!(e instanceof EventFrameSkija))
+            FrameScheduler.invalidate();
     }
     /**
      * Рисование
@@ -55,6 +55,20 @@ public class Circle{
                 '}';
     }
 
+    /**
+     * Проверка двух объектов на равенство
+     *
+     * @param o объект, с которым сравниваем текущий
+     * @return флаг, равны ли два объекта
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Circle circle = (Circle) o;
+        return Double.compare(circle.rad, rad) == 0 && Objects.equals(center, circle.center);
+    }
+
     /**
      * Получить хэш-код объекта
      *
@@ -0,0 +1,271 @@
+package app;
+
+import io.github.humbleui.skija.Canvas;
+import io.github.humbleui.skija.Paint;
+import io.github.humbleui.skija.PaintMode;
+import io.github.humbleui.skija.Path;
+import misc.CoordinateSystem2d;
+import misc.CoordinateSystem2i;
+
+import java.util.Arrays;
+
+/**
+ * Пакетное рисование окружностей: ломаные окружностей собираются
+ * в один путь и выводятся одним вызовом рисования на пачку окружностей.
+ * Перевод из СК задачи в СК окна считается на примитивах.
+ * Окружности вне видимой области не рисуются, окружности меньше пикселя
+ * рисуются точками, кол-во отрезков ломаной зависит от радиуса на экране
+ */
+public class CirclePainter implements AutoCloseable {
+    /**
+     * Кол-во окружностей в одной пачке
+     */
+    private static final int BATCH_SIZE = 4096;
+    /**
+     * Детализация окружности вне видимой области: она не рисуется
+     */
+    public static final int CULLED = -2;
+    /**
+     * Детализация окружности меньше пикселя: она рисуется точкой
+     */
+    public static final int POINT = -1;
+    /**
+     * Область рисования
+     */
+    private final Canvas canvas;
+    /**
+     * Перо
+     */
+    private final Paint paint = new Paint().setMode(PaintMode.STROKE);
+    /**
+     * Путь текущей пачки
+     */
+    private final Path path = new Path();
+    /**
+     * Масштаб по x
+     */
+    private final double kx;
+    /**
+     * Масштаб по y
+     */
+    private final double ky;
+    /**
+     * Смещение по x
+     */
+    private final double ox;
+    /**
+     * Смещение по y
+     */
+    private final double oy;
+    /**
+     * Границы видимой области в СК окна
+     */
+    private final double left, top, right, bottom;
+    /**
+     * Координаты точек текущей пачки
+     */
+    private final float[] points = new float[2 * BATCH_SIZE];
+    /**
+     * Буферы вершин ломаных по уровням, создаются при первом запросе:
+     * путь добавляет ломаную целиком из массива, поэтому размер буфера
+     * должен совпадать с кол-вом вершин
+     */
+    private final float[][] vertices = new float[UnitCircles.levels()][];
+    /**
+     * Кол-во окружностей в текущей пачке
+     */
+    private int batched;
+    /**
+     * Кол-во точек в текущей пачке
+     */
+    private int pointsCnt;
+
+    /**
+     * Конструктор художника
+     *
+     * @param canvas   область рисования
+     * @param windowCS СК окна
+     * @param ownCS    СК задачи
+     */
+    public CirclePainter(Canvas canvas, CoordinateSystem2i windowCS, CoordinateSystem2d ownCS) {
+        this.canvas = canvas;
+        // то же преобразование, что и CoordinateSystem2i.getCoords(x, -y, ownCS):
+        // y-координату разворачиваем, потому что у СК окна ось y направлена вниз,
+        // а в классическом представлении - вверх
+        kx = (windowCS.getSize().x - 1) / ownCS.getSize().x;
+        ky = (windowCS.getSize().y - 1) / ownCS.getSize().y;
+        ox = windowCS.getMin().x - ownCS.getMin().x * kx;
+        oy = windowCS.getMin().y - ownCS.getMin().y * ky;
+        // панель сдвигает канвас к началу СК окна, поэтому видимая
+        // область захватывает и полосу от нуля до начала
+        left = Math.min(0, windowCS.getMin().x);
+        top = Math.min(0, windowCS.getMin().y);
+        right = windowCS.getMax().x + 1;
+        bottom = windowCS.getMax().y + 1;
+    }
+
+    /**
+     * Конструктор художника с заданным преобразованием,
+     * видимая область - прямоугольник от нуля до заданных размеров
+     *
+     * @param canvas область рисования
+     * @param kx     масштаб по x
+     * @param ky     масштаб по y
+     * @param ox     смещение по x
+     * @param oy     смещение по y
+     * @param width  ширина видимой области
+     * @param height высота видимой области
+     */
+    public CirclePainter(Canvas canvas, double kx, double ky, double ox, double oy, double width, double height) {
+        this.canvas = canvas;
+        this.kx = kx;
+        this.ky = ky;
+        this.ox = ox;
+        this.oy = oy;
+        left = 0;
+        top = 0;
+        right = width;
+        bottom = height;
+    }
+
+    /**
+     * x-координата в СК окна
+     *
+     * @param x x-координата в СК задачи
+     * @return x-координата в СК окна
+     */
+    private float screenX(double x) {
+        return (float) (x * kx + ox);
+    }
+
+    /**
+     * y-координата в СК окна
+     *
+     * @param y y-координата в СК задачи
+     * @return y-координата в СК окна
+     */
+    private float screenY(double y) {
+        return (float) (-y * ky + oy);
+    }
+
+    /**
+     * Задать цвет, дорисовав текущую пачку
+     *
+     * @param color цвет
+     */
+    public void setColor(int color) {
+        flush();
+        paint.setColor(color);
+    }
+
+    /**
+     * Добавить окружность в пачку
+     *
+     * @param x   x-координата центра
+     * @param y   y-координата центра
+     * @param rad радиус
+     */
+    public void circle(double x, double y, double rad) {
+        double sx = x * kx + ox, sy = -y * ky + oy;
+        double rx = rad * kx, ry = rad * ky;
+        int level = detail(sx, sy, rx, ry, left, top, right, bottom);
+        if (level == CULLED)
+            return;
+        if (level == POINT) {
+            points[2 * pointsCnt] = (float) sx;
+            points[2 * pointsCnt + 1] = (float) sy;
+            if (++pointsCnt == BATCH_SIZE)
+                flush();
+            return;
+        }
+        // вершины считаются в буфер и добавляются в путь одним вызовом
+        if (vertices[level] == null)
+            vertices[level] = new float[2 * UnitCircles.segments(level)];
+        polygon(vertices[level], sx, sy, rx, ry, level);
+        path.addPoly(vertices[level], true);
+        if (++batched == BATCH_SIZE)
+            flush();
+    }
+
+    /**
+     * Детализация окружности по её положению и радиусам в СК окна
+     *
+     * @param sx     x-координата центра
+     * @param sy     y-координата центра
+     * @param rx     радиус по x в пикселях
+     * @param ry     радиус по y в пикселях
+     * @param left   левая граница видимой области
+     * @param top    верхняя граница видимой области
+     * @param right  правая граница видимой области
+     * @param bottom нижняя граница видимой области
+     * @return {@link #CULLED}, {@link #POINT} или уровень ломаной {@link UnitCircles}
+     */
+    public static int detail(
+            double sx, double sy, double rx, double ry, double left, double top, double right, double bottom
+    ) {
+        // окружность целиком вне видимой области
+        if (sx + rx < left || sx - rx > right || sy + ry < top || sy - ry > bottom)
+            return CULLED;
+        double radPx = Math.max(rx, ry);
+        // окружность меньше пикселя рисуем точкой
+        if (radPx < 1)
+            return POINT;
+        return UnitCircles.level(radPx);
+    }
+
+    /**
+     * Посчитать вершины ломаной по общей таблице единичной окружности
+     *
+     * @param vertices буфер вершин размером в удвоенное кол-во отрезков уровня
+     * @param sx       x-координата центра в СК окна
+     * @param sy       y-координата центра в СК окна
+     * @param rx       радиус по x в пикселях
+     * @param ry       радиус по y в пикселях
+     * @param level    уровень ломаной
+     */
+    public static void polygon(float[] vertices, double sx, double sy, double rx, double ry, int level) {
+        double[] table = UnitCircles.table(level);
+        // у окна ось y направлена вниз
+        for (int k = 0; k < table.length; k += 2) {
+            vertices[k] = (float) (sx + rx * table[k]);
+            vertices[k + 1] = (float) (sy - ry * table[k + 1]);
+        }
+    }
+
+    /**
+     * Нарисовать отрезок
+     *
+     * @param x1 x-координата первой точки
+     * @param y1 y-координата первой точки
+     * @param x2 x-координата второй точки
+     * @param y2 y-координата второй точки
+     */
+    public void line(double x1, double y1, double x2, double y2) {
+        canvas.drawLine(screenX(x1), screenY(y1), screenX(x2), screenY(y2), paint);
+    }
+
+    /**
+     * Нарисовать накопленную пачку
+     */
+    public void flush() {
+        if (batched > 0) {
+            canvas.drawPath(path, paint);
+            path.reset();
+            batched = 0;
+        }
+        if (pointsCnt > 0) {
+            canvas.drawPoints(pointsCnt == BATCH_SIZE ? points : Arrays.copyOf(points, 2 * pointsCnt), paint);
+            pointsCnt = 0;
+        }
+    }
+
+    /**
+     * Дорисовать пачку и освободить ресурсы
+     */
+    @Override
+    public void close() {
+        flush();
+        path.close();
+        paint.close();
+    }
+}
@@ -0,0 +1,243 @@
+package app;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import misc.Vector2d;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Хранилище окружностей: координаты центров и радиусы без объектов
+ * на каждую окружность. Решатели и рисование перебирают его по индексам,
+ * объекты окружностей создаются только по запросу
+ */
+@JsonSerialize(using = CircleStore.Serializer.class)
+public abstract class CircleStore {
+    /**
+     * Системное свойство, выбирающее вид хранилища: heap, offheap или mapped.
+     * При mapped двоичные файлы задачи отображаются в память,
+     * а новые хранилища создаются в куче. Для offheap объём ограничен флагом
+     * {@link OffHeapCircleStore#MAX_DIRECT_MEMORY_FLAG}
+     */
+    public static final String STORE_PROPERTY = "circles.store";
+
+    /**
+     * Нужно ли отображать двоичные файлы задачи в память вместо чтения
+     *
+     * @return флаг
+     */
+    public static boolean isMappingEnabled() {
+        return "mapped".equalsIgnoreCase(System.getProperty(STORE_PROPERTY));
+    }
+
+    /**
+     * Создать хранилище выбранного в настройках вида
+     *
+     * @param capacity начальная ёмкость
+     * @return новое хранилище
+     */
+    public static CircleStore create(int capacity) {
+        if ("offheap".equalsIgnoreCase(System.getProperty(STORE_PROPERTY)))
+            return new OffHeapCircleStore(capacity);
+        return new HeapCircleStore(capacity);
+    }
+
+    /**
+     * Создать хранилище выбранного в настройках вида по списку окружностей
+     *
+     * @param circles список окружностей
+     * @return новое хранилище
+     */
+    public static CircleStore of(List<Circle> circles) {
+        CircleStore store = create(circles.size());
+        for (Circle c : circles)
+            store.add(c);
+        return store;
+    }
+
+    /**
+     * Кол-во окружностей
+     *
+     * @return кол-во окружностей
+     */
+    public abstract int size();
+
+    /**
+     * x-координата центра
+     *
+     * @param i индекс окружности
+     * @return x-координата центра
+     */
+    public abstract double x(int i);
+
+    /**
+     * y-координата центра
+     *
+     * @param i индекс окружности
+     * @return y-координата центра
+     */
+    public abstract double y(int i);
+
+    /**
+     * Радиус
+     *
+     * @param i индекс окружности
+     * @return радиус
+     */
+    public abstract double rad(int i);
+
+    /**
+     * Добавить окружность
+     *
+     * @param x   x-координата центра
+     * @param y   y-координата центра
+     * @param rad радиус
+     */
+    public abstract void add(double x, double y, double rad);
+
+    /**
+     * Удалить окружность, сохранив порядок остальных
+     *
+     * @param i индекс окружности
+     */
+    public abstract void remove(int i);
+
+    /**
+     * Удалить все окружности
+     */
+    public abstract void clear();
+
+    /**
+     * Объём памяти вне кучи, занятый хранилищем
+     *
+     * @return объём в байтах
+     */
+    public long getOffHeapBytes() {
+        return 0;
+    }
+
+    /**
+     * Снимок хранилища, который никто не меняет, поэтому его можно читать
+     * из любого потока без блокировок. Здесь окружности копируются, хранилища
+     * переопределяют снимок, чтобы делить память со снимком до первого изменения
+     *
+     * @return снимок
+     */
+    public CircleStore snapshot() {
+        CircleStore copy = create(size());
+        for (int i = 0; i < size(); i++)
+            copy.add(x(i), y(i), rad(i));
+        return copy;
+    }
+
+    /**
+     * Проверить индекс окружности
+     *
+     * @param i индекс окружности
+     */
+    protected void checkIndex(int i) {
+        if (i < 0 || i >= size())
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size());
+    }
+
+    /**
+     * Получить окружность
+     *
+     * @param i индекс окружности
+     * @return новый объект окружности
+     */
+    public Circle get(int i) {
+        checkIndex(i);
+        return new Circle(new Vector2d(x(i), y(i)), rad(i));
+    }
+
+    /**
+     * Добавить окружность
+     *
+     * @param c окружность
+     */
+    public void add(Circle c) {
+        add(c.center.x, c.center.y, c.rad);
+    }
+
+    /**
+     * Получить список окружностей, отображающий хранилище
+     *
+     * @return список окружностей
+     */
+    public List<Circle> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Circle get(int index) {
+                return CircleStore.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return CircleStore.this.size();
+            }
+
+            @Override
+            public void add(int index, Circle element) {
+                if (index != size())
+                    throw new UnsupportedOperationException("Окружности добавляются только в конец");
+                CircleStore.this.add(element);
+                modCount++;
+            }
+
+            @Override
+            public Circle remove(int index) {
+                Circle c = CircleStore.this.get(index);
+                CircleStore.this.remove(index);
+                modCount++;
+                return c;
+            }
+
+            @Override
+            public void clear() {
+                CircleStore.this.clear();
+                modCount++;
+            }
+        };
+    }
+
+    /**
+     * Запись хранилища в json тем же массивом окружностей,
+     * что и при сериализации списка, но без создания объектов
+     */
+    static class Serializer extends StdSerializer<CircleStore> {
+        /**
+         * Конструктор сериализатора
+         */
+        Serializer() {
+            super(CircleStore.class);
+        }
+
+        /**
+         * Записать хранилище
+         *
+         * @param store    хранилище
+         * @param gen      генератор json
+         * @param provider провайдер сериализаторов
+         * @throws IOException ошибка записи
+         */
+        @Override
+        public void serialize(CircleStore store, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray();
+            for (int i = 0; i < store.size(); i++) {
+                gen.writeStartObject();
+                gen.writeObjectFieldStart("center");
+                gen.writeNumberField("x", store.x(i));
+                gen.writeNumberField("y", store.y(i));
+                gen.writeEndObject();
+                gen.writeNumberField("rad", store.rad(i));
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+}
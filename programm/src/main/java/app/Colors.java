@@ -31,6 +31,10 @@ public class Colors {
      * Цвет кнопки
      */
     public static final int BUTTON_COLOR = Misc.getColor(80, 0, 0, 0);
+    /**
+     * Цвет индикатора фоновой работы
+     */
+    public static final int PROGRESS_COLOR = Misc.getColor(200, 255, 255, 255);
     /**
      * Цвет пересечения
      */
@@ -0,0 +1,127 @@
+package app;
+
+import io.github.humbleui.jwm.App;
+import io.github.humbleui.jwm.Window;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Планировщик кадров: кадр рисуется только по запросу,
+ * все запросы до начала рисования склеиваются в один кадр
+ */
+public class FrameScheduler {
+    /**
+     * Окно, в котором рисуются кадры
+     */
+    private static volatile Window window;
+    /**
+     * Флаг, запрошен ли уже следующий кадр
+     */
+    private static final AtomicBoolean pending = new AtomicBoolean();
+    /**
+     * Кол-во запросов на перерисовку
+     */
+    private static final AtomicLong invalidations = new AtomicLong();
+    /**
+     * Кол-во запросов, склеенных с уже запрошенным кадром
+     */
+    private static final AtomicLong coalesced = new AtomicLong();
+    /**
+     * Кол-во нарисованных кадров
+     */
+    private static final AtomicLong frames = new AtomicLong();
+
+    /**
+     * Начать планировать кадры для окна
+     *
+     * @param window окно
+     */
+    public static void start(Window window) {
+        FrameScheduler.window = window;
+        invalidate();
+    }
+
+    /**
+     * Перестать планировать кадры, например, перед закрытием окна
+     */
+    public static void stop() {
+        window = null;
+    }
+
+    /**
+     * Запросить перерисовку, можно вызывать из любого потока
+     */
+    public static void invalidate() {
+        // окна ещё нет или уже нет, рисовать некуда
+        if (window == null)
+            return;
+        invalidations.incrementAndGet();
+        // кадр уже запрошен, он покажет и это изменение
+        if (!pending.compareAndSet(false, true)) {
+            coalesced.incrementAndGet();
+            return;
+        }
+        // запросить кадр у окна можно только из потока интерфейса
+        App.runOnUIThread(() -> {
+            Window w = window;
+            if (w != null)
+                w.requestFrame();
+            else
+                pending.set(false);
+        });
+    }
+
+    /**
+     * Отметить, что кадр начал рисоваться
+     */
+    public static void framePainted() {
+        // изменения, пришедшие во время рисования, запросят новый кадр
+        pending.set(false);
+        frames.incrementAndGet();
+    }
+
+    /**
+     * Кол-во нарисованных кадров
+     *
+     * @return кол-во кадров
+     */
+    public static long getFrames() {
+        return frames.get();
+    }
+
+    /**
+     * Кол-во запросов на перерисовку
+     *
+     * @return кол-во запросов
+     */
+    public static long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * Кол-во запросов, не потребовавших отдельного кадра
+     *
+     * @return кол-во пропущенных кадров
+     */
+    public static long getSkippedFrames() {
+        return coalesced.get();
+    }
+
+    /**
+     * Статистика кадров в виде строки
+     *
+     * @return строка со статистикой
+     */
+    public static String getStats() {
+        return "кадров: " + getFrames() + ", запросов: " + getInvalidations() +
+                ", пропущено кадров: " + getSkippedFrames();
+    }
+
+    /**
+     * Запрещаем вызов конструктора
+     */
+    private FrameScheduler() {
+        throw new AssertionError("Вызов этого конструктора запрещён!");
+    }
+}
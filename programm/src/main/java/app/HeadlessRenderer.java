@@ -0,0 +1,141 @@
+package app;
+
+import files.SceneFiles;
+import io.github.humbleui.skija.Canvas;
+import io.github.humbleui.skija.Data;
+import io.github.humbleui.skija.EncodedImageFormat;
+import io.github.humbleui.skija.Image;
+import io.github.humbleui.skija.Surface;
+import misc.CoordinateSystem2i;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static app.Colors.APP_BACKGROUND_COLOR;
+
+/**
+ * Рисование задачи без окна и видеокарты: задача рисуется тем же кодом,
+ * что и в окне, на растровую поверхность в памяти и сохраняется в PNG.
+ * Запуск из командной строки:
+ * {@code java -cp ... app.HeadlessRenderer <ширина> <высота> <задача> <png> [<задача> <png> ...]}
+ */
+public class HeadlessRenderer {
+    /**
+     * Подсказка по аргументам командной строки
+     */
+    private static final String USAGE =
+            "использование: HeadlessRenderer <ширина> <высота> <задача> <png> [<задача> <png> ...]";
+
+    /**
+     * Нарисовать файлы задач в PNG из командной строки
+     *
+     * @param args ширина, высота и пары из файла задачи и файла картинки
+     */
+    public static void main(String[] args) {
+        if (args.length < 4 || args.length % 2 != 0) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        try {
+            int width = Integer.parseInt(args[0]);
+            int height = Integer.parseInt(args[1]);
+            if (width <= 0 || height <= 0)
+                throw new NumberFormatException("размеры картинки должны быть положительными");
+            Map<File, Task> scenes = new LinkedHashMap<>();
+            for (int i = 2; i < args.length; i += 2)
+                scenes.put(new File(args[i + 1]), SceneFiles.read(new File(args[i])));
+            renderAll(scenes, width, height);
+        } catch (NumberFormatException e) {
+            System.err.println("неверный размер картинки: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("ошибка: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Нарисовать задачу в PNG
+     *
+     * @param task   задача
+     * @param width  ширина картинки
+     * @param height высота картинки
+     * @return байты PNG
+     */
+    public static byte[] render(Task task, int width, int height) {
+        // у каждого вызова своя поверхность, поэтому разные задачи
+        // можно рисовать из разных потоков одновременно
+        try (Surface surface = Surface.makeRasterN32Premul(width, height)) {
+            Canvas canvas = surface.getCanvas();
+            canvas.clear(APP_BACKGROUND_COLOR);
+            task.paint(canvas, new CoordinateSystem2i(width, height));
+            try (Image image = surface.makeImageSnapshot();
+                 Data data = image.encodeToData(EncodedImageFormat.PNG)) {
+                if (data == null)
+                    throw new IllegalStateException("не получилось закодировать PNG");
+                return data.getBytes();
+            }
+        }
+    }
+
+    /**
+     * Нарисовать задачу в файл PNG
+     *
+     * @param task   задача
+     * @param width  ширина картинки
+     * @param height высота картинки
+     * @param file   файл
+     * @throws IOException ошибка записи файла
+     */
+    public static void render(Task task, int width, int height, File file) throws IOException {
+        Files.write(file.toPath(), render(task, width, height));
+    }
+
+    /**
+     * Нарисовать задачи в файлы параллельно на всех ядрах
+     *
+     * @param scenes задачи по файлам, в которые их нужно нарисовать
+     * @param width  ширина картинок
+     * @param height высота картинок
+     * @throws IOException ошибка записи одного из файлов
+     */
+    public static void renderAll(Map<File, Task> scenes, int width, int height) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<File, Task> scene : scenes.entrySet())
+                futures.add(executor.submit(() -> {
+                    render(scene.getValue(), width, height, scene.getKey());
+                    return null;
+                }));
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("рисование прервано", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioe)
+                throw ioe;
+            throw new IOException("не получилось нарисовать задачу", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Запрещаем вызов конструктора
+     */
+    private HeadlessRenderer() {
+        throw new AssertionError("Вызов этого конструктора запрещён!");
+    }
+}
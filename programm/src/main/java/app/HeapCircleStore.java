@@ -0,0 +1,197 @@
+package app;
+
+import java.util.Arrays;
+
+/**
+ * Хранилище окружностей в параллельных массивах кучи. Снимки используют
+ * те же массивы, а хранилище копирует их только перед тем, как переписать
+ * окружность, видимую снимку; добавление в конец массивы не копирует
+ */
+public class HeapCircleStore extends CircleStore {
+    /**
+     * Начальная ёмкость
+     */
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * x-координаты центров
+     */
+    private double[] cx;
+    /**
+     * y-координаты центров
+     */
+    private double[] cy;
+    /**
+     * Радиусы
+     */
+    private double[] r;
+    /**
+     * Кол-во окружностей
+     */
+    private int size;
+    /**
+     * Кол-во окружностей в начале массивов, которые видны снимкам,
+     * их нельзя переписывать без копирования массивов
+     */
+    private int sharedSize;
+
+    /**
+     * Конструктор пустого хранилища
+     */
+    public HeapCircleStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Конструктор пустого хранилища
+     *
+     * @param capacity начальная ёмкость
+     */
+    public HeapCircleStore(int capacity) {
+        capacity = Math.max(capacity, INITIAL_CAPACITY);
+        cx = new double[capacity];
+        cy = new double[capacity];
+        r = new double[capacity];
+        size = 0;
+    }
+
+    /**
+     * Хранилище над теми же массивами
+     *
+     * @param cx   x-координаты центров
+     * @param cy   y-координаты центров
+     * @param r    радиусы
+     * @param size кол-во окружностей
+     */
+    private HeapCircleStore(double[] cx, double[] cy, double[] r, int size) {
+        this.cx = cx;
+        this.cy = cy;
+        this.r = r;
+        this.size = size;
+        sharedSize = size;
+    }
+
+    /**
+     * Скопировать массивы, если окружность с заданным индексом видна снимкам
+     *
+     * @param i индекс переписываемой окружности
+     */
+    private void unshare(int i) {
+        if (i < sharedSize) {
+            cx = Arrays.copyOf(cx, cx.length);
+            cy = Arrays.copyOf(cy, cy.length);
+            r = Arrays.copyOf(r, r.length);
+            sharedSize = 0;
+        }
+    }
+
+    /**
+     * Кол-во окружностей
+     *
+     * @return кол-во окружностей
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * x-координата центра
+     *
+     * @param i индекс окружности
+     * @return x-координата центра
+     */
+    @Override
+    public double x(int i) {
+        return cx[i];
+    }
+
+    /**
+     * y-координата центра
+     *
+     * @param i индекс окружности
+     * @return y-координата центра
+     */
+    @Override
+    public double y(int i) {
+        return cy[i];
+    }
+
+    /**
+     * Радиус
+     *
+     * @param i индекс окружности
+     * @return радиус
+     */
+    @Override
+    public double rad(int i) {
+        return r[i];
+    }
+
+    /**
+     * Добавить окружность
+     *
+     * @param x   x-координата центра
+     * @param y   y-координата центра
+     * @param rad радиус
+     */
+    @Override
+    public void add(double x, double y, double rad) {
+        if (size == r.length) {
+            int capacity = r.length + (r.length >> 1);
+            cx = Arrays.copyOf(cx, capacity);
+            cy = Arrays.copyOf(cy, capacity);
+            r = Arrays.copyOf(r, capacity);
+            // новые массивы снимкам не видны
+            sharedSize = 0;
+        }
+        unshare(size);
+        cx[size] = x;
+        cy[size] = y;
+        r[size] = rad;
+        size++;
+    }
+
+    /**
+     * Удалить окружность, сохранив порядок остальных
+     *
+     * @param i индекс окружности
+     */
+    @Override
+    public void remove(int i) {
+        checkIndex(i);
+        int tail = size - i - 1;
+        if (tail > 0)
+            unshare(i);
+        System.arraycopy(cx, i + 1, cx, i, tail);
+        System.arraycopy(cy, i + 1, cy, i, tail);
+        System.arraycopy(r, i + 1, r, i, tail);
+        size--;
+    }
+
+    /**
+     * Удалить все окружности
+     */
+    @Override
+    public void clear() {
+        // массивы снимков не трогаем, дальше пишем в новые
+        if (sharedSize > 0) {
+            cx = new double[INITIAL_CAPACITY];
+            cy = new double[INITIAL_CAPACITY];
+            r = new double[INITIAL_CAPACITY];
+            sharedSize = 0;
+        }
+        size = 0;
+    }
+
+    /**
+     * Снимок хранилища: массивы не копируются, а становятся общими
+     * со снимком до первого изменения видимых ему окружностей
+     *
+     * @return снимок
+     */
+    @Override
+    public CircleStore snapshot() {
+        sharedSize = Math.max(sharedSize, size);
+        return new HeapCircleStore(cx, cy, r, size);
+    }
+}
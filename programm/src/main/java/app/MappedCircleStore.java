@@ -0,0 +1,291 @@
+package app;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Хранилище окружностей, отображённое на файл: тройки (x, y, r) читаются
+ * прямо из отображённой памяти, страницы файла подгружаются по мере обращения.
+ * Файл и отображения не меняются и в кучу не копируются: добавленные окружности
+ * лежат в небольшом хранилище после окружностей файла, а удалённые окружности
+ * файла запоминаются отсортированным массивом их номеров в файле
+ */
+public class MappedCircleStore extends CircleStore {
+    /**
+     * Размер одной окружности в байтах
+     */
+    private static final int CIRCLE_BYTES = 3 * Double.BYTES;
+    /**
+     * Степень двойки кол-ва окружностей в одном отображении
+     */
+    private static final int CHUNK_SHIFT = 24;
+    /**
+     * Кол-во окружностей в одном отображении
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    /**
+     * Маска индекса внутри отображения
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /**
+     * Пустой массив удалённых окружностей
+     */
+    private static final int[] NONE_REMOVED = new int[0];
+    /**
+     * Отображённые файлы по массивам их отображений: пока массив достижим
+     * из хранилища или его снимка, файл отображён
+     */
+    private static final Map<ByteBuffer[], Path> MAPPED_FILES = new WeakHashMap<>();
+    /**
+     * Отображения частей файла
+     */
+    private final ByteBuffer[] chunks;
+    /**
+     * Кол-во окружностей файла, которые ещё учитываются, после очистки 0
+     */
+    private int mappedSize;
+    /**
+     * Номера удалённых окружностей в файле по возрастанию. Массив не меняется,
+     * при удалении создаётся новый, поэтому снимки делят его без копирования
+     */
+    private int[] removed = NONE_REMOVED;
+    /**
+     * Окружности, добавленные после окружностей файла
+     */
+    private final CircleStore added;
+
+    /**
+     * Отобразить окружности из файла
+     *
+     * @param file     путь к файлу
+     * @param channel  канал файла, после отображения его можно закрыть
+     * @param position смещение первой окружности в файле
+     * @param size     кол-во окружностей
+     * @param order    порядок байт в файле
+     * @throws IOException ошибка отображения
+     */
+    public MappedCircleStore(Path file, FileChannel channel, long position, int size, ByteOrder order) throws IOException {
+        mappedSize = size;
+        chunks = new ByteBuffer[(size + CHUNK_MASK) >>> CHUNK_SHIFT];
+        for (int c = 0; c < chunks.length; c++) {
+            long cnt = Math.min(CHUNK_SIZE, size - ((long) c << CHUNK_SHIFT));
+            chunks[c] = channel.map(
+                    FileChannel.MapMode.READ_ONLY, position + ((long) c << CHUNK_SHIFT) * CIRCLE_BYTES, cnt * CIRCLE_BYTES
+            ).order(order);
+        }
+        added = create(0);
+        synchronized (MAPPED_FILES) {
+            MAPPED_FILES.put(chunks, file.toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * Флаг, отображён ли файл хранилищем, которое ещё используется.
+     * На Windows такой файл нельзя заменить или удалить
+     *
+     * @param file путь к файлу
+     * @return флаг
+     */
+    public static boolean isFileMapped(Path file) {
+        Path path = file.toAbsolutePath().normalize();
+        synchronized (MAPPED_FILES) {
+            return MAPPED_FILES.containsValue(path);
+        }
+    }
+
+    /**
+     * Хранилище над теми же отображениями
+     *
+     * @param chunks     отображения
+     * @param mappedSize кол-во учитываемых окружностей файла
+     * @param removed    номера удалённых окружностей файла
+     * @param added      добавленные окружности
+     */
+    private MappedCircleStore(ByteBuffer[] chunks, int mappedSize, int[] removed, CircleStore added) {
+        this.chunks = chunks;
+        this.mappedSize = mappedSize;
+        this.removed = removed;
+        this.added = added;
+    }
+
+    /**
+     * Смещение окружности в отображении
+     *
+     * @param i номер окружности в файле
+     * @return смещение в байтах
+     */
+    private static int offset(int i) {
+        return (i & CHUNK_MASK) * CIRCLE_BYTES;
+    }
+
+    /**
+     * Кол-во оставшихся окружностей файла
+     *
+     * @return кол-во окружностей
+     */
+    private int mappedLeft() {
+        return mappedSize - removed.length;
+    }
+
+    /**
+     * Номер окружности в файле по индексу среди оставшихся окружностей файла.
+     * Величина removed[j] - j не убывает, поэтому кол-во удалённых окружностей
+     * перед искомой находится двоичным поиском
+     *
+     * @param i индекс среди оставшихся окружностей файла
+     * @return номер в файле
+     */
+    private int fileIndex(int i) {
+        if (removed.length == 0)
+            return i;
+        int lo = 0, hi = removed.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (removed[mid] - mid <= i)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return i + lo;
+    }
+
+    /**
+     * Прочитать значение окружности файла
+     *
+     * @param i     номер окружности в файле
+     * @param shift смещение значения внутри окружности в байтах
+     * @return значение
+     */
+    private double mapped(int i, int shift) {
+        return chunks[i >>> CHUNK_SHIFT].getDouble(offset(i) + shift);
+    }
+
+    /**
+     * Кол-во окружностей
+     *
+     * @return кол-во окружностей
+     */
+    @Override
+    public int size() {
+        return mappedLeft() + added.size();
+    }
+
+    /**
+     * x-координата центра
+     *
+     * @param i индекс окружности
+     * @return x-координата центра
+     */
+    @Override
+    public double x(int i) {
+        int left = mappedLeft();
+        return i < left ? mapped(fileIndex(i), 0) : added.x(i - left);
+    }
+
+    /**
+     * y-координата центра
+     *
+     * @param i индекс окружности
+     * @return y-координата центра
+     */
+    @Override
+    public double y(int i) {
+        int left = mappedLeft();
+        return i < left ? mapped(fileIndex(i), Double.BYTES) : added.y(i - left);
+    }
+
+    /**
+     * Радиус
+     *
+     * @param i индекс окружности
+     * @return радиус
+     */
+    @Override
+    public double rad(int i) {
+        int left = mappedLeft();
+        return i < left ? mapped(fileIndex(i), 2 * Double.BYTES) : added.rad(i - left);
+    }
+
+    /**
+     * Добавить окружность
+     *
+     * @param x   x-координата центра
+     * @param y   y-координата центра
+     * @param rad радиус
+     */
+    @Override
+    public void add(double x, double y, double rad) {
+        added.add(x, y, rad);
+    }
+
+    /**
+     * Удалить окружность, сохранив порядок остальных. Окружность файла
+     * только запоминается удалённой, это стоит O(кол-ва удалённых)
+     *
+     * @param i индекс окружности
+     */
+    @Override
+    public void remove(int i) {
+        checkIndex(i);
+        int left = mappedLeft();
+        if (i >= left) {
+            added.remove(i - left);
+            return;
+        }
+        int index = fileIndex(i);
+        int pos = Arrays.binarySearch(removed, index);
+        pos = -pos - 1;
+        int[] next = new int[removed.length + 1];
+        System.arraycopy(removed, 0, next, 0, pos);
+        next[pos] = index;
+        System.arraycopy(removed, pos, next, pos + 1, removed.length - pos);
+        removed = next;
+    }
+
+    /**
+     * Удалить все окружности
+     */
+    @Override
+    public void clear() {
+        // отображения остаются, но их окружности больше не учитываются
+        mappedSize = 0;
+        removed = NONE_REMOVED;
+        added.clear();
+    }
+
+    /**
+     * Снимок хранилища: снимок использует те же отображения и массив удалённых,
+     * а добавленные окружности делит по правилам их хранилища
+     *
+     * @return снимок
+     */
+    @Override
+    public CircleStore snapshot() {
+        return new MappedCircleStore(chunks, mappedSize, removed, added.snapshot());
+    }
+
+    /**
+     * Флаг, читаются ли все окружности из файла, то есть добавленных нет
+     *
+     * @return флаг
+     */
+    public boolean isMapped() {
+        return added.size() == 0;
+    }
+
+    /**
+     * Объём памяти вне кучи, занятый добавленными окружностями
+     *
+     * @return объём в байтах
+     */
+    @Override
+    public long getOffHeapBytes() {
+        return added.getOffHeapBytes();
+    }
+}
@@ -0,0 +1,310 @@
+package app;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Хранилище окружностей вне кучи: тройки (x, y, r) лежат подряд
+ * в прямых буферах фиксированного размера, поэтому объём не ограничен
+ * ни кучей, ни размером одного буфера. Прямые буферы ограничены флагом
+ * {@code -XX:MaxDirectMemorySize}, по умолчанию он равен {@code -Xmx}: чтобы
+ * сцена была больше кучи, флаг нужно задать явно, например {@code -XX:MaxDirectMemorySize=16g}.
+ * Снимки используют те же буферы, а хранилище копирует буфер только перед тем,
+ * как переписать видимую снимку окружность, поэтому снимок версии не удваивает
+ * занятую вне кучи память
+ */
+public class OffHeapCircleStore extends CircleStore {
+    /**
+     * Размер одной окружности в байтах
+     */
+    private static final int CIRCLE_BYTES = 3 * Double.BYTES;
+    /**
+     * Степень двойки кол-ва окружностей в одном буфере: буфер занимает 1,5 МБ,
+     * столько стоят и маленькое хранилище, и копия буфера при изменении после снимка
+     */
+    private static final int CHUNK_SHIFT = 16;
+    /**
+     * Кол-во окружностей в одном буфере
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    /**
+     * Маска индекса внутри буфера
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /**
+     * Флаг JVM, ограничивающий объём прямых буферов
+     */
+    public static final String MAX_DIRECT_MEMORY_FLAG = "-XX:MaxDirectMemorySize=";
+    /**
+     * Буферы
+     */
+    private final ArrayList<ByteBuffer> chunks = new ArrayList<>();
+    /**
+     * Кол-во окружностей
+     */
+    private int size;
+    /**
+     * Буферы, общие со снимками
+     */
+    private final BitSet shared = new BitSet();
+    /**
+     * Кол-во окружностей в начале буферов, которые видны снимкам,
+     * их нельзя переписывать в общих буферах
+     */
+    private int sharedSize;
+
+    /**
+     * Конструктор пустого хранилища
+     */
+    public OffHeapCircleStore() {
+        this(0);
+    }
+
+    /**
+     * Конструктор пустого хранилища
+     *
+     * @param capacity начальная ёмкость
+     */
+    public OffHeapCircleStore(int capacity) {
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Хранилище над теми же буферами
+     *
+     * @param chunks буферы
+     * @param size   кол-во окружностей
+     */
+    private OffHeapCircleStore(List<ByteBuffer> chunks, int size) {
+        this.chunks.addAll(chunks);
+        this.size = size;
+        shared.set(0, chunks.size());
+        sharedSize = size;
+    }
+
+    /**
+     * Новый прямой буфер
+     *
+     * @return буфер
+     */
+    private static ByteBuffer allocate() {
+        try {
+            return ByteBuffer.allocateDirect(CHUNK_SIZE * CIRCLE_BYTES).order(ByteOrder.nativeOrder());
+        } catch (OutOfMemoryError e) {
+            throw new OutOfMemoryError(e.getMessage() + ": предел прямой памяти " + getMaxDirectMemory() +
+                    " байт, увеличьте его флагом " + MAX_DIRECT_MEMORY_FLAG);
+        }
+    }
+
+    /**
+     * Выделить буферы под заданное кол-во окружностей
+     *
+     * @param capacity кол-во окружностей
+     */
+    private void ensureCapacity(int capacity) {
+        while ((long) chunks.size() * CHUNK_SIZE < capacity)
+            chunks.add(allocate());
+    }
+
+    /**
+     * Предел объёма прямых буферов: значение флага {@link #MAX_DIRECT_MEMORY_FLAG},
+     * а если он не задан, размер кучи
+     *
+     * @return предел в байтах
+     */
+    public static long getMaxDirectMemory() {
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments())
+            if (arg.startsWith(MAX_DIRECT_MEMORY_FLAG))
+                return parseSize(arg.substring(MAX_DIRECT_MEMORY_FLAG.length()));
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * Разобрать размер в формате флагов JVM: число с необязательным суффиксом k, m, g или t
+     *
+     * @param size размер
+     * @return размер в байтах
+     */
+    static long parseSize(String size) {
+        int shift = switch (Character.toLowerCase(size.charAt(size.length() - 1))) {
+            case 'k' -> 10;
+            case 'm' -> 20;
+            case 'g' -> 30;
+            case 't' -> 40;
+            default -> 0;
+        };
+        return Long.parseLong(shift == 0 ? size : size.substring(0, size.length() - 1)) << shift;
+    }
+
+    /**
+     * Описание занятой вне кучи памяти вместе с её пределом
+     *
+     * @param bytes занятый объём в байтах
+     * @return описание
+     */
+    public static String describeOffHeap(long bytes) {
+        return "память вне кучи: " + bytes + " байт из " + getMaxDirectMemory() +
+                " (предел задаётся флагом " + MAX_DIRECT_MEMORY_FLAG + ")";
+    }
+
+    /**
+     * Получить буфер окружности
+     *
+     * @param i индекс окружности
+     * @return буфер
+     */
+    private ByteBuffer chunk(int i) {
+        return chunks.get(i >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * Смещение окружности в буфере
+     *
+     * @param i индекс окружности
+     * @return смещение в байтах
+     */
+    private static int offset(int i) {
+        return (i & CHUNK_MASK) * CIRCLE_BYTES;
+    }
+
+    /**
+     * Кол-во окружностей
+     *
+     * @return кол-во окружностей
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * x-координата центра
+     *
+     * @param i индекс окружности
+     * @return x-координата центра
+     */
+    @Override
+    public double x(int i) {
+        return chunk(i).getDouble(offset(i));
+    }
+
+    /**
+     * y-координата центра
+     *
+     * @param i индекс окружности
+     * @return y-координата центра
+     */
+    @Override
+    public double y(int i) {
+        return chunk(i).getDouble(offset(i) + Double.BYTES);
+    }
+
+    /**
+     * Радиус
+     *
+     * @param i индекс окружности
+     * @return радиус
+     */
+    @Override
+    public double rad(int i) {
+        return chunk(i).getDouble(offset(i) + 2 * Double.BYTES);
+    }
+
+    /**
+     * Записать окружность по индексу
+     *
+     * @param i   индекс окружности
+     * @param x   x-координата центра
+     * @param y   y-координата центра
+     * @param rad радиус
+     */
+    private void set(int i, double x, double y, double rad) {
+        if (i < sharedSize)
+            unshare(i);
+        ByteBuffer buf = chunk(i);
+        int off = offset(i);
+        buf.putDouble(off, x);
+        buf.putDouble(off + Double.BYTES, y);
+        buf.putDouble(off + 2 * Double.BYTES, rad);
+    }
+
+    /**
+     * Скопировать буфер окружности, видимой снимкам
+     *
+     * @param i индекс переписываемой окружности
+     */
+    private void unshare(int i) {
+        int c = i >>> CHUNK_SHIFT;
+        if (!shared.get(c))
+            return;
+        ByteBuffer copy = allocate();
+        copy.put(0, chunks.get(c), 0, CHUNK_SIZE * CIRCLE_BYTES);
+        chunks.set(c, copy);
+        shared.clear(c);
+    }
+
+    /**
+     * Добавить окружность
+     *
+     * @param x   x-координата центра
+     * @param y   y-координата центра
+     * @param rad радиус
+     */
+    @Override
+    public void add(double x, double y, double rad) {
+        ensureCapacity(size + 1);
+        set(size, x, y, rad);
+        size++;
+    }
+
+    /**
+     * Удалить окружность, сохранив порядок остальных
+     *
+     * @param i индекс окружности
+     */
+    @Override
+    public void remove(int i) {
+        checkIndex(i);
+        for (int k = i; k < size - 1; k++)
+            set(k, x(k + 1), y(k + 1), rad(k + 1));
+        size--;
+    }
+
+    /**
+     * Удалить все окружности, освободив буферы
+     */
+    @Override
+    public void clear() {
+        chunks.clear();
+        shared.clear();
+        sharedSize = 0;
+        size = 0;
+    }
+
+    /**
+     * Объём памяти вне кучи, занятый хранилищем
+     *
+     * @return объём в байтах
+     */
+    @Override
+    public long getOffHeapBytes() {
+        return (long) chunks.size() * CHUNK_SIZE * CIRCLE_BYTES;
+    }
+
+    /**
+     * Снимок хранилища: буферы не копируются, а становятся общими
+     * со снимком до первого изменения видимых ему окружностей
+     *
+     * @return снимок
+     */
+    @Override
+    public CircleStore snapshot() {
+        shared.set(0, chunks.size());
+        sharedSize = Math.max(sharedSize, size);
+        return new OffHeapCircleStore(chunks, size);
+    }
+}
@@ -0,0 +1,44 @@
+package app;
+
+import misc.CoordinateSystem2d;
+
+/**
+ * Неизменяемый снимок сцены задачи. Задача публикует новый снимок
+ * после изменений, а рисование и фоновое решение читают снимок
+ * без блокировок, не мешая изменению самой задачи
+ */
+public class Scene {
+    /**
+     * СК задачи
+     */
+    public final CoordinateSystem2d ownCS;
+    /**
+     * Снимок окружностей, его нельзя менять
+     */
+    public final CircleStore circles;
+    /**
+     * Версия задачи, с которой снят снимок
+     */
+    public final long revision;
+    /**
+     * Индексы окружностей ответа, которые рисуются поверх слоя, или -1
+     */
+    public final int answer1, answer2;
+
+    /**
+     * Снимок сцены
+     *
+     * @param ownCS    СК задачи
+     * @param circles  снимок окружностей
+     * @param revision версия задачи
+     * @param answer1  индекс первой окружности ответа или -1
+     * @param answer2  индекс второй окружности ответа или -1
+     */
+    public Scene(CoordinateSystem2d ownCS, CircleStore circles, long revision, int answer1, int answer2) {
+        this.ownCS = ownCS;
+        this.circles = circles;
+        this.revision = revision;
+        this.answer1 = answer1;
+        this.answer2 = answer2;
+    }
+}
@@ -4,16 +4,21 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
-import io.github.humbleui.skija.Paint;
 import lombok.Getter;
 import misc.CoordinateSystem2d;
 import misc.CoordinateSystem2i;
 import misc.Vector2d;
 import misc.Vector2i;
 import panels.PanelLog;
+import solvers.IncrementalSolver;
+import solvers.Intersections;
+import solvers.SolveMode;
+import solvers.Solution;
+import solvers.TopChords;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.List;
 
 import static app.Colors.CROSSED_COLOR;
 import static app.Colors.CIRCLE_COLOR;
@@ -39,10 +44,30 @@ public class Task {
     @Getter
     private final CoordinateSystem2d ownCS;
     /**
-     * Список окружностей
+     * Видимая часть СК задачи
      */
     @Getter
-    private final ArrayList<Circle> circles;
+    @JsonIgnore
+    private final CoordinateSystem2d viewCS;
+    /**
+     * Уровень приближения, ноль соответствует всей СК задачи
+     */
+    @Getter
+    @JsonIgnore
+    private int zoom;
+    /**
+     * Во сколько раз меняется размер видимой области за один шаг приближения
+     */
+    private static final double ZOOM_BASE = 1.25;
+    /**
+     * Максимальный по модулю уровень приближения
+     */
+    private static final int MAX_ZOOM = 40;
+    /**
+     * Хранилище окружностей
+     */
+    @JsonProperty("circles")
+    private final CircleStore circles;
     /**
      * Размер точки
      */
@@ -81,6 +106,60 @@ public class Task {
     @JsonIgnore
     private Vector2d[] pointing;
 
+    /**
+     * Режим решения задачи
+     */
+    @Getter
+    @JsonIgnore
+    private SolveMode solveMode = SolveMode.GRID;
+
+    /**
+     * Поддерживаемая лучшая пара для режима INCREMENTAL
+     */
+    private IncrementalSolver incremental;
+
+    /**
+     * Найденная пара
+     */
+    @Getter
+    @JsonIgnore
+    private Solution solution;
+
+    /**
+     * Кол-во самых длинных отрезков в запросе по умолчанию
+     */
+    public static final int TOP_CHORDS_CNT = 1000;
+
+    /**
+     * Самые длинные отрезки
+     */
+    @Getter
+    @JsonIgnore
+    private TopChords topChords;
+
+    /**
+     * Точки самых длинных отрезков
+     */
+    private Vector2d[][] topPointing;
+
+    /**
+     * Снимок сцены, по которому найдены самые длинные отрезки,
+     * индексы отрезков относятся к нему
+     */
+    private Scene topScene;
+
+    /**
+     * Номер версии слоя окружностей, растёт при каждом его изменении
+     */
+    @Getter
+    @JsonIgnore
+    private long revision;
+
+    /**
+     * Последний опубликованный снимок сцены
+     */
+    private volatile Scene scene;
+
     /**
      * Задача
      *
@@ -92,7 +171,20 @@ public class Task {
             @JsonProperty("ownCS") CoordinateSystem2d ownCS,
             @JsonProperty("circles") ArrayList<Circle> circles
     ) {
+        this(ownCS, circles == null ? CircleStore.create(0) : CircleStore.of(circles));
+    }
+
+    /**
+     * Задача над готовым хранилищем окружностей
+     *
+     * @param ownCS   СК задачи
+     * @param circles хранилище окружностей
+     */
+    public Task(CoordinateSystem2d ownCS, CircleStore circles) {
         this.ownCS = ownCS;
+        this.viewCS = new CoordinateSystem2d(
+                ownCS.getMin().x, ownCS.getMin().y, ownCS.getSize().x, ownCS.getSize().y
+        );
         this.circles = circles;
         this.crossed = new ArrayList<>();
         this.clicksCnt = 0;
@@ -107,63 +199,117 @@ public class Task {
      * @param windowCS СК окна
      */
     public void paint(io.github.humbleui.skija.Canvas canvas, CoordinateSystem2i windowCS) {
-        // Сохраняем последнюю СК
-        lastWindowCS = windowCS;
-        canvas.save();
-        // создаём перо
-        try (var paint = new Paint()) {
-            paint.setColor(CIRCLE_COLOR);
-            for (Circle c : circles) {
-                printCircle(c, paint, windowCS, ownCS, canvas);
-            }
-            paint.setColor(CROSSED_COLOR);
-            for (Circle c : crossed) {
-                printCircle(c, paint, windowCS, ownCS, canvas);
-            }
-            if (solved) {
-                paint.setColor(Colors.LINE_COLOR);
-                printLine(pointing[0], pointing[1], paint, windowCS, ownCS, canvas);
-            }
+        paintCircles(canvas, windowCS);
+        paintOverlay(canvas, windowCS);
+    }
 
+    /**
+     * Рисование слоя окружностей, меняющегося только вместе с версией задачи
+     *
+     * @param canvas   область рисования
+     * @param windowCS СК окна
+     */
+    public void paintCircles(io.github.humbleui.skija.Canvas canvas, CoordinateSystem2i windowCS) {
+        canvas.save();
+        try (var painter = new CirclePainter(canvas, windowCS, viewCS)) {
+            paintCircles(painter);
         }
         canvas.restore();
     }
 
     /**
-     * Рисование окружности
-     * @param c окружность
-     * @param paint
-     * @param windowCS
-     * @param ownCS
-     * @param canvas
+     * Рисование слоя окружностей заданным художником
+     *
+     * @param painter художник
      */
+    public void paintCircles(CirclePainter painter) {
+        // рисуем по снимку, а не по изменяемому хранилищу
+        Scene scene = getScene();
+        CircleStore circles = scene.circles;
+        painter.setColor(CIRCLE_COLOR);
+        for (int i = 0; i < circles.size(); i++) {
+            // окружности ответа рисуются отдельно
+            if (i == scene.answer1 || i == scene.answer2)
+                continue;
+            painter.circle(circles.x(i), circles.y(i), circles.rad(i));
+        }
+        painter.flush();
+    }
 
-    private static void printCircle(Circle c, Paint paint, CoordinateSystem2i windowCS, CoordinateSystem2d ownCS, io.github.humbleui.skija.Canvas canvas) {
-        double delta = Math.acos(1 - (1 / (50 * c.rad)));
-        for (double angle = 0; angle <= Math.PI * 2; angle += delta) {
-            printLine(new Vector2d(c.center.x + c.rad * Math.cos(angle), c.center.y + c.rad * Math.sin(angle)),
-                    new Vector2d(c.center.x + c.rad * Math.cos(angle + delta), c.center.y + c.rad * Math.sin(angle + delta)),
-                    paint, windowCS, ownCS, canvas);
+    /**
+     * Рисование части слоя окружностей снимка заданным художником
+     *
+     * @param painter художник
+     * @param scene   снимок сцены
+     * @param indices индексы окружностей
+     * @param cnt     кол-во индексов
+     */
+    public static void paintCircles(CirclePainter painter, Scene scene, int[] indices, int cnt) {
+        CircleStore circles = scene.circles;
+        painter.setColor(CIRCLE_COLOR);
+        for (int k = 0; k < cnt; k++) {
+            int i = indices[k];
+            if (i == scene.answer1 || i == scene.answer2)
+                continue;
+            painter.circle(circles.x(i), circles.y(i), circles.rad(i));
         }
+        painter.flush();
     }
 
     /**
-     * Рисование линии
-     * @param p1 точка №1
-     * @param p2 точка №2
-     * @param paint
-     * @param windowCS
-     * @param ownCS
-     * @param canvas
+     * Получить снимок сцены текущей версии. Снимок снимается заново,
+     * только если задача изменилась с прошлого запроса
+     *
+     * @return снимок сцены
      */
+    @JsonIgnore
+    public Scene getScene() {
+        Scene current = scene;
+        if (current == null || current.revision != revision) {
+            current = new Scene(
+                    ownCS, circles.snapshot(), revision,
+                    solved ? solution.index1 : -1, solved ? solution.index2 : -1
+            );
+            scene = current;
+        }
+        return current;
+    }
 
-    private static void printLine(Vector2d p1, Vector2d p2, Paint paint, CoordinateSystem2i windowCS, CoordinateSystem2d ownCS, io.github.humbleui.skija.Canvas canvas) {
-        // y-координату разворачиваем, потому что у СК окна ось y направлена вниз,
-        // а в классическом представлении - вверх
-        Vector2i windowPos1 = windowCS.getCoords(p1.x, -p1.y, ownCS);
-        Vector2i windowPos2 = windowCS.getCoords(p2.x, -p2.y, ownCS);
-        // рисуем линию
-        canvas.drawLine(windowPos1.x, windowPos1.y, windowPos2.x, windowPos2.y, paint);
+    /**
+     * Рисование ответа поверх слоя окружностей
+     *
+     * @param canvas   область рисования
+     * @param windowCS СК окна
+     */
+    public void paintOverlay(io.github.humbleui.skija.Canvas canvas, CoordinateSystem2i windowCS) {
+        // Сохраняем последнюю СК
+        lastWindowCS = windowCS;
+        canvas.save();
+        // создаём художника с пером
+        try (var painter = new CirclePainter(canvas, windowCS, viewCS)) {
+            painter.setColor(CROSSED_COLOR);
+            for (Circle c : crossed) {
+                painter.circle(c.center.x, c.center.y, c.rad);
+            }
+            if (solved) {
+                painter.setColor(Colors.LINE_COLOR);
+                painter.line(pointing[0].x, pointing[0].y, pointing[1].x, pointing[1].y);
+            }
+            // выделяем самые длинные отрезки
+            if (topChords != null) {
+                painter.setColor(CROSSED_COLOR);
+                CircleStore top = topScene.circles;
+                for (int k = 0; k < topChords.size(); k++) {
+                    int i = topChords.index1(k), j = topChords.index2(k);
+                    painter.circle(top.x(i), top.y(i), top.rad(i));
+                    painter.circle(top.x(j), top.y(j), top.rad(j));
+                }
+                painter.setColor(Colors.LINE_COLOR);
+                for (Vector2d[] points : topPointing)
+                    painter.line(points[0].x, points[0].y, points[1].x, points[1].y);
+            }
+        }
+        canvas.restore();
     }
 
     /**
@@ -174,9 +320,42 @@ public class Task {
      */
     public void addCircle(Vector2d pos, double rad) {
         solved = false;
-        Circle newCircle = new Circle(pos, rad);
-        circles.add(newCircle);
-        PanelLog.info("окружность " + newCircle + " добавлена");
+        circles.add(pos.x, pos.y, rad);
+        revision++;
+        if (incremental != null)
+            incremental.added();
+        PanelLog.info("окружность (" + pos.x + ", " + pos.y + "), радиус " + rad + " добавлена");
+    }
+
+    /**
+     * Добавить порцию окружностей одной версией задачи
+     *
+     * @param chunk порция окружностей, после вызова её можно менять
+     */
+    public void addCircles(CircleStore chunk) {
+        solved = false;
+        for (int i = 0; i < chunk.size(); i++) {
+            circles.add(chunk.x(i), chunk.y(i), chunk.rad(i));
+            if (incremental != null)
+                incremental.added();
+        }
+        revision++;
+        PanelLog.info("добавлено окружностей: " + chunk.size());
+    }
+
+    /**
+     * Удалить окружность
+     *
+     * @param index индекс окружности
+     */
+    public void removeCircle(int index) {
+        cancel();
+        Circle removed = circles.get(index);
+        circles.remove(index);
+        revision++;
+        if (incremental != null)
+            incremental.removed(index);
+        PanelLog.info("окружность " + removed + " удалена");
     }
     /**
      * Клик мыши по пространству задачи
@@ -187,7 +366,7 @@ public class Task {
         cancel();
         if (lastWindowCS == null) return;
         // получаем положение на экране
-        Vector2d taskPos = ownCS.getCoords(pos, lastWindowCS);
+        Vector2d taskPos = viewCS.getCoords(pos, lastWindowCS);
         taskPos.y *= -1;
         if (clicksCnt == 0) {
             prevClick = taskPos;
@@ -199,6 +378,67 @@ public class Task {
             clicksCnt = 0;
         }
     }
+    /**
+     * Сдвинуть видимую область вслед за мышью
+     *
+     * @param delta сдвиг мыши в пикселях
+     */
+    public void pan(Vector2i delta) {
+        if (lastWindowCS == null) return;
+        double dx = delta.x * viewCS.getSize().x / (lastWindowCS.getSize().x - 1);
+        double dy = delta.y * viewCS.getSize().y / (lastWindowCS.getSize().y - 1);
+        // размер не пересчитываем, чтобы масштаб уровня приближения не менялся
+        viewCS.set(viewCS.getMin().x - dx, viewCS.getMin().y - dy, viewCS.getSize().x, viewCS.getSize().y);
+    }
+
+    /**
+     * Изменить приближение, оставив на месте точку под мышью
+     *
+     * @param steps кол-во шагов приближения, отрицательное для отдаления
+     * @param pos   положение мыши
+     */
+    public void zoom(int steps, Vector2i pos) {
+        if (lastWindowCS == null) return;
+        zoom(steps, viewCS.getCoords(pos, lastWindowCS));
+    }
+
+    /**
+     * Изменить приближение относительно центра видимой области
+     *
+     * @param steps кол-во шагов приближения, отрицательное для отдаления
+     */
+    public void zoom(int steps) {
+        zoom(steps, Vector2d.sum(viewCS.getMin(), Vector2d.mul(viewCS.getSize(), 0.5)));
+    }
+
+    /**
+     * Изменить приближение, оставив на месте заданную точку
+     *
+     * @param steps  кол-во шагов приближения, отрицательное для отдаления
+     * @param center неподвижная точка в координатах видимой области
+     */
+    private void zoom(int steps, Vector2d center) {
+        int newZoom = Math.max(-MAX_ZOOM, Math.min(MAX_ZOOM, zoom + steps));
+        if (newZoom == zoom) return;
+        zoom = newZoom;
+        // размер считаем от СК задачи, чтобы у уровня был всегда один масштаб
+        double scale = Math.pow(ZOOM_BASE, -zoom);
+        double sizeX = ownCS.getSize().x * scale, sizeY = ownCS.getSize().y * scale;
+        viewCS.set(
+                center.x - (center.x - viewCS.getMin().x) * sizeX / viewCS.getSize().x,
+                center.y - (center.y - viewCS.getMin().y) * sizeY / viewCS.getSize().y,
+                sizeX, sizeY
+        );
+    }
+
+    /**
+     * Показать всю СК задачи
+     */
+    public void resetView() {
+        zoom = 0;
+        viewCS.set(ownCS.getMin().x, ownCS.getMin().y, ownCS.getSize().x, ownCS.getSize().y);
+    }
+
     /**
      * Добавить случайные окружности
      *
@@ -218,47 +458,41 @@ public class Task {
      */
     public void clear() {
         circles.clear();
-        crossed.clear();
-        pointing = new Vector2d[2];
-        solved = false;
+        revision++;
+        if (incremental != null)
+            incremental.cleared();
+        cancel();
     }
 
     /**
-     * Пересекаются ли окржности
-     * @param c1 окружность №1
-     * @param c2 окружность №2
+     * Получить список окружностей, отображающий хранилище задачи
+     *
+     * @return список окружностей
      */
-    private boolean isCrossed (Circle c1, Circle c2) {
-        double d = Vector2d.subtract(c1.center, c2.center).length();
-        return d < c1.rad + c2.rad && d > Math.abs(c1.rad - c2.rad);
+    @JsonIgnore
+    public List<Circle> getCircles() {
+        return circles.asList();
     }
 
     /**
-     * Найти точки пересечения окружностей
-     * @param c1 окружность №1
-     * @param c2 окружность №2
+     * Объём памяти вне кучи, занятый окружностями
+     *
+     * @return объём в байтах
      */
-    private Vector2d[] crossing (Circle c1, Circle c2) {
-        Vector2d d = Vector2d.subtract(c2.center, c1.center);
-        double dLen = d.length();
-        double l = (c1.rad * c1.rad - c2.rad * c2.rad + dLen * dLen) / (2 * dLen);
-        Vector2d[] points = {new Vector2d(0, 0), new Vector2d(0, 0)};
-        if (d.y == 0) {
-            points[0].x = dLen * l / d.x;
-            points[1].x = points[0].x;
-        } else {
-            double a = dLen * dLen;
-            double b = -2 * dLen * l * d.x;
-            double c = dLen * dLen * l * l - c1.rad * c1.rad * d.y * d.y;
-            double Discriminant4 = (b / 2) * (b / 2) - a * c;
-            points[0].x = (-b/2 + Math.sqrt(Discriminant4)) / a;
-            points[1].x = (-b/2 - Math.sqrt(Discriminant4)) / a;
-        }
-        points[0].y = (dLen * l - points[0].x * d.x) / d.y;
-        points[1].y = (dLen * l - points[1].x * d.x) / d.y;
-        points[0].add(c1.center);
-        points[1].add(c1.center);
-        return points;
+    @JsonIgnore
+    public long getOffHeapBytes() {
+        return circles.getOffHeapBytes();
+    }
+
+    /**
+     * Задать режим решения задачи
+     *
+     * @param solveMode режим решения
+     */
+    public void setSolveMode(SolveMode solveMode) {
+        this.solveMode = solveMode;
+        // лучшая пара поддерживается только в своём режиме
+        incremental = null;
     }
 
     /**
@@ -267,45 +501,179 @@ public class Task {
     public void solve() {
         cancel();
 
-        int index1 = -1, index2 = -1;
-        double len = 0;
-        for (int i = 0; i < circles.size(); ++i) {
-            for (int j = i + 1; j < circles.size(); ++j) {
-                if (isCrossed(circles.get(i), circles.get(j))) {
-                    Vector2d[] now = crossing(circles.get(i), circles.get(j));
-                    double nowLen = Vector2d.subtract(now[0], now[1]).length();
-                    if (nowLen > len) {
-                        len = nowLen;
-                        index1 = i;
-                        index2 = j;
-                        pointing = now;
-                    }
-                }
-            }
+        Solution solution;
+        if (solveMode == SolveMode.INCREMENTAL) {
+            // при первом решении строим сетку, дальше она обновляется при изменениях
+            if (incremental == null)
+                incremental = new IncrementalSolver(circles, ownCS);
+            solution = incremental.getSolution();
+        } else {
+            solution = solveMode.getSolver().solve(circles, ownCS);
         }
+        logSolution(solveMode, solution, circles);
+        setSolution(solution);
+    }
 
-        if (index1 != -1 && index2 != -1) {
+    /**
+     * Флаг, поддерживается ли уже лучшая пара режима INCREMENTAL,
+     * тогда решение не требует перебора
+     *
+     * @return флаг
+     */
+    public boolean hasIncremental() {
+        return incremental != null;
+    }
+
+    /**
+     * Построить сетку режима INCREMENTAL по снимку сцены, можно вызывать из любого потока
+     *
+     * @param scene снимок сцены
+     * @return решатель с найденной лучшей парой
+     */
+    public static IncrementalSolver buildIncremental(Scene scene) {
+        IncrementalSolver solver = new IncrementalSolver(scene.circles, scene.ownCS);
+        logSolution(SolveMode.INCREMENTAL, solver.getSolution(), scene.circles);
+        return solver;
+    }
+
+    /**
+     * Применить сетку режима INCREMENTAL, построенную по снимку сцены:
+     * дальше она поддерживается при изменениях задачи
+     *
+     * @param scene  снимок сцены
+     * @param solver решатель, построенный по снимку
+     * @return false, если задача изменилась после снятия снимка или сменился режим
+     */
+    public boolean applyIncremental(Scene scene, IncrementalSolver solver) {
+        if (scene.revision != revision || solveMode != SolveMode.INCREMENTAL)
+            return false;
+        solver.attach(circles);
+        incremental = solver;
+        cancel();
+        setSolution(solver.getSolution());
+        return true;
+    }
+
+    /**
+     * Решить задачу по снимку сцены, можно вызывать из любого потока
+     *
+     * @param scene снимок сцены
+     * @param mode  режим решения
+     * @return найденная пара
+     */
+    public static Solution solve(Scene scene, SolveMode mode) {
+        Solution solution = mode.getSolver().solve(scene.circles, scene.ownCS);
+        logSolution(mode, solution, scene.circles);
+        return solution;
+    }
+
+    /**
+     * Применить решение, найденное по снимку сцены
+     *
+     * @param scene    снимок сцены
+     * @param solution найденная пара
+     * @return false, если задача изменилась после снятия снимка и решение устарело
+     */
+    public boolean applySolution(Scene scene, Solution solution) {
+        if (scene.revision != revision)
+            return false;
+        cancel();
+        setSolution(solution);
+        return true;
+    }
+
+    /**
+     * Вывести в лог статистику решения
+     *
+     * @param mode     режим решения
+     * @param solution найденная пара
+     * @param circles  окружности
+     */
+    private static void logSolution(SolveMode mode, Solution solution, CircleStore circles) {
+        PanelLog.info(mode + ": проверено пар " + solution.tested +
+                ", отброшено " + solution.getPruned(circles.size()));
+        if (circles.getOffHeapBytes() > 0)
+            PanelLog.info(OffHeapCircleStore.describeOffHeap(circles.getOffHeapBytes()));
+    }
+
+    /**
+     * Запомнить найденную пару и построить ответ
+     *
+     * @param solution найденная пара
+     */
+    private void setSolution(Solution solution) {
+        this.solution = solution;
+        int index1 = solution.index1, index2 = solution.index2;
+        if (solution.isFound()) {
+            // точки пересечения строим только для найденной пары
+            pointing = Intersections.crossing(circles.get(index1), circles.get(index2));
             crossed.add(circles.get(index1));
             crossed.add(circles.get(index2));
-            circles.remove(Math.max(index2, index1));
-            circles.remove(Math.min(index2, index1));
 
             // задача решена
             solved = true;
+            revision++;
         } else {
             cancel();
         }
     }
+    /**
+     * Найти самые длинные отрезки пересечения
+     *
+     * @param k кол-во отрезков
+     */
+    public void solveTop(int k) {
+        Scene scene = getScene();
+        applyTop(scene, findTop(scene, k));
+    }
+
+    /**
+     * Найти самые длинные отрезки пересечения по снимку сцены,
+     * можно вызывать из любого потока
+     *
+     * @param scene снимок сцены
+     * @param k     кол-во отрезков
+     * @return самые длинные отрезки
+     */
+    public static TopChords findTop(Scene scene, int k) {
+        TopChords top = TopChords.find(scene.circles, k);
+        PanelLog.info("найдено отрезков: " + top.size() + ", проверено пар " + top.tested);
+        return top;
+    }
+
+    /**
+     * Применить самые длинные отрезки, найденные по снимку сцены
+     *
+     * @param scene снимок сцены
+     * @param top   самые длинные отрезки
+     * @return false, если задача изменилась после снятия снимка и отрезки устарели
+     */
+    public boolean applyTop(Scene scene, TopChords top) {
+        if (scene.revision != revision)
+            return false;
+        cancel();
+        topScene = scene;
+        topChords = top;
+        // точки строим только для отобранных пар
+        CircleStore circles = scene.circles;
+        topPointing = new Vector2d[top.size()][];
+        for (int t = 0; t < top.size(); t++)
+            topPointing[t] = Intersections.crossing(circles.get(top.index1(t)), circles.get(top.index2(t)));
+        return true;
+    }
+
     /**
      * Отмена решения задачи
      */
     public void cancel() {
-        if (!crossed.isEmpty()) {
-            circles.add(crossed.get(0));
-            circles.add(crossed.get(1));
-        }
         crossed.clear();
+        topChords = null;
+        topPointing = null;
+        topScene = null;
         pointing = new Vector2d[2];
+        // окружности ответа возвращаются в слой окружностей
+        if (solved)
+            revision++;
         solved = false;
     }
     /**
@@ -0,0 +1,275 @@
+package app;
+
+import io.github.humbleui.skija.Canvas;
+import io.github.humbleui.skija.Picture;
+import io.github.humbleui.skija.PictureRecorder;
+import io.github.humbleui.skija.Rect;
+import misc.CoordinateSystem2d;
+import misc.CoordinateSystem2i;
+import misc.IntList;
+import misc.Vector2i;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш слоя окружностей, разбитого на квадратные плитки.
+ * Плитки привязаны к СК задачи и уровню приближения, поэтому
+ * при сдвиге видимой области дорисовываются только новые плитки,
+ * давно не показанные плитки вытесняются. Окружности раскладываются
+ * по плиткам один раз на версию задачи и уровень приближения, и плитка
+ * перебирает только свои окружности. Большие окружности лежат
+ * в ячейках крупных уровней, каждый следующий в 16 раз больше по стороне
+ */
+public class TileCache implements AutoCloseable {
+    /**
+     * Размер плитки в пикселях
+     */
+    public static final int TILE_SIZE = 256;
+    /**
+     * Максимальное кол-во плиток в кэше
+     */
+    public static final int MAX_TILES = 256;
+    /**
+     * Кол-во уровней ячеек раскладки
+     */
+    private static final int LEVELS = 4;
+    /**
+     * Сдвиг номера плитки при переходе на следующий уровень
+     */
+    private static final int LEVEL_SHIFT = 4;
+    /**
+     * Сколько ячеек по оси может задевать окружность на своём уровне
+     */
+    private static final int MAX_SPAN = 4;
+    /**
+     * Запас в пикселях на толщину линии окружности
+     */
+    private static final double STROKE_MARGIN = 1;
+    /**
+     * Плитки в порядке последнего использования
+     */
+    private final Map<Tile, Picture> tiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Tile, Picture> eldest) {
+            if (size() <= MAX_TILES)
+                return false;
+            eldest.getValue().close();
+            return true;
+        }
+    };
+    /**
+     * Окружности по ячейкам уровней
+     */
+    private final Map<Cell, IntList> cells = new HashMap<>();
+    /**
+     * Окружности, которые слишком велики и для последнего уровня
+     */
+    private final IntList huge = new IntList();
+    /**
+     * Снимок сцены, по которому разложены окружности, null, если раскладки нет
+     */
+    private Scene scene;
+    /**
+     * Уровень приближения, для которого разложены окружности
+     */
+    private int cellsZoom;
+    /**
+     * Задача, для которой нарисованы плитки
+     */
+    private Task task;
+    /**
+     * Версия задачи, для которой нарисованы плитки
+     */
+    private long revision;
+    /**
+     * Размер окна, для которого нарисованы плитки
+     */
+    private Vector2i windowSize;
+    /**
+     * Кол-во нарисованных плиток
+     */
+    private long rendered;
+
+    /**
+     * Ключ плитки
+     *
+     * @param zoom уровень приближения
+     * @param x    номер столбца
+     * @param y    номер строки
+     */
+    private record Tile(int zoom, long x, long y) {
+    }
+
+    /**
+     * Ключ ячейки раскладки
+     *
+     * @param level уровень, ячейка уровня покрывает 16 ^ level плиток по стороне
+     * @param x     номер столбца
+     * @param y     номер строки
+     */
+    private record Cell(int level, long x, long y) {
+    }
+
+    /**
+     * Нарисовать слой окружностей задачи из плиток
+     *
+     * @param canvas   область рисования
+     * @param task     задача
+     * @param windowCS СК окна
+     */
+    public void paint(Canvas canvas, Task task, CoordinateSystem2i windowCS) {
+        // плитки рисуются в масштабе окна, поэтому при его изменении
+        // или при изменении задачи их нужно рисовать заново
+        if (task != this.task || task.getRevision() != revision || !windowCS.getSize().equals(windowSize)) {
+            clear();
+            this.task = task;
+            revision = task.getRevision();
+            windowSize = windowCS.getSize();
+        }
+        // то же преобразование, что и у художника окружностей
+        CoordinateSystem2d viewCS = task.getViewCS();
+        double kx = (windowCS.getSize().x - 1) / viewCS.getSize().x;
+        double ky = (windowCS.getSize().y - 1) / viewCS.getSize().y;
+        if (scene == null || task.getZoom() != cellsZoom)
+            index(task.getScene(), kx, ky);
+        cellsZoom = task.getZoom();
+        double ox = windowCS.getMin().x - viewCS.getMin().x * kx;
+        double oy = windowCS.getMin().y - viewCS.getMin().y * ky;
+        // видимые плитки, панель сдвигает канвас к началу СК окна
+        long fromX = (long) Math.floor((Math.min(0, windowCS.getMin().x) - ox) / TILE_SIZE);
+        long fromY = (long) Math.floor((Math.min(0, windowCS.getMin().y) - oy) / TILE_SIZE);
+        long toX = (long) Math.floor((windowCS.getMax().x + 1 - ox) / TILE_SIZE);
+        long toY = (long) Math.floor((windowCS.getMax().y + 1 - oy) / TILE_SIZE);
+        for (long y = fromY; y <= toY; y++) {
+            for (long x = fromX; x <= toX; x++) {
+                Tile key = new Tile(task.getZoom(), x, y);
+                Picture tile = tiles.get(key);
+                if (tile == null) {
+                    tile = render(kx, ky, x, y);
+                    tiles.put(key, tile);
+                }
+                canvas.save();
+                canvas.translate((float) (x * TILE_SIZE + ox), (float) (y * TILE_SIZE + oy));
+                // окружность на границе есть в обеих плитках, каждая рисует только свою часть
+                canvas.clipRect(Rect.makeWH(TILE_SIZE, TILE_SIZE));
+                canvas.drawPicture(tile);
+                canvas.restore();
+            }
+        }
+    }
+
+    /**
+     * Разложить окружности снимка по ячейкам: окружность попадает на самый мелкий
+     * уровень, на котором задевает не больше {@link #MAX_SPAN} ячеек по каждой оси
+     *
+     * @param scene снимок сцены
+     * @param kx    масштаб по x
+     * @param ky    масштаб по y
+     */
+    private void index(Scene scene, double kx, double ky) {
+        this.scene = scene;
+        cells.clear();
+        huge.size = 0;
+        CircleStore circles = scene.circles;
+        for (int i = 0; i < circles.size(); i++) {
+            double x = circles.x(i), y = circles.y(i), r = circles.rad(i);
+            // ограничивающий квадрат в пикселях относительно начала плиток, ось y вниз
+            long x0 = tilePos((x - r) * kx - STROKE_MARGIN), x1 = tilePos((x + r) * kx + STROKE_MARGIN);
+            long y0 = tilePos(-(y + r) * ky - STROKE_MARGIN), y1 = tilePos(-(y - r) * ky + STROKE_MARGIN);
+            int level = 0;
+            while (level < LEVELS && Math.max(x1 - x0, y1 - y0) >= MAX_SPAN) {
+                x0 >>= LEVEL_SHIFT;
+                x1 >>= LEVEL_SHIFT;
+                y0 >>= LEVEL_SHIFT;
+                y1 >>= LEVEL_SHIFT;
+                level++;
+            }
+            if (level == LEVELS) {
+                huge.add(i);
+                continue;
+            }
+            for (long cy = y0; cy <= y1; cy++)
+                for (long cx = x0; cx <= x1; cx++)
+                    cells.computeIfAbsent(new Cell(level, cx, cy), k -> new IntList()).add(i);
+        }
+    }
+
+    /**
+     * Номер плитки по координате в пикселях относительно начала плиток
+     *
+     * @param v координата
+     * @return номер плитки
+     */
+    private static long tilePos(double v) {
+        return (long) Math.floor(v / TILE_SIZE);
+    }
+
+    /**
+     * Нарисовать плитку, перебирая только окружности её ячеек
+     *
+     * @param kx масштаб по x
+     * @param ky масштаб по y
+     * @param x  номер столбца
+     * @param y  номер строки
+     * @return записанная плитка
+     */
+    private Picture render(double kx, double ky, long x, long y) {
+        rendered++;
+        try (PictureRecorder recorder = new PictureRecorder()) {
+            Canvas canvas = recorder.beginRecording(Rect.makeWH(TILE_SIZE, TILE_SIZE));
+            try (var painter = new CirclePainter(
+                    canvas, kx, ky, -x * TILE_SIZE, -y * TILE_SIZE, TILE_SIZE, TILE_SIZE
+            )) {
+                // окружность лежит только на одном уровне, поэтому рисуется один раз
+                for (int level = 0; level < LEVELS; level++) {
+                    int shift = level * LEVEL_SHIFT;
+                    IntList list = cells.get(new Cell(level, x >> shift, y >> shift));
+                    if (list != null)
+                        Task.paintCircles(painter, scene, list.items, list.size);
+                }
+                Task.paintCircles(painter, scene, huge.items, huge.size);
+            }
+            return recorder.finishRecordingAsPicture();
+        }
+    }
+
+    /**
+     * Кол-во плиток в кэше
+     *
+     * @return кол-во плиток
+     */
+    public int size() {
+        return tiles.size();
+    }
+
+    /**
+     * Кол-во нарисованных с момента создания кэша плиток
+     *
+     * @return кол-во плиток
+     */
+    public long getRendered() {
+        return rendered;
+    }
+
+    /**
+     * Очистить кэш
+     */
+    public void clear() {
+        for (Picture tile : tiles.values())
+            tile.close();
+        tiles.clear();
+        scene = null;
+        cells.clear();
+        huge.size = 0;
+    }
+
+    /**
+     * Освободить плитки
+     */
+    @Override
+    public void close() {
+        clear();
+    }
+}
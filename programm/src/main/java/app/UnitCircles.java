@@ -0,0 +1,124 @@
+package app;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Таблицы косинусов и синусов вершин правильных многоугольников,
+ * вписанных в единичную окружность. Кол-ва вершин берутся из
+ * ограниченного набора, поэтому таблиц не больше, чем уровней,
+ * и занимают они меньше мегабайта
+ */
+public class UnitCircles {
+    /**
+     * Допустимое отклонение ломаной от окружности в пикселях
+     */
+    public static final double TOLERANCE = 0.25;
+    /**
+     * Минимальное кол-во отрезков ломаной
+     */
+    private static final int MIN_SEGMENTS = 3;
+    /**
+     * Максимальное кол-во отрезков ломаной
+     */
+    private static final int MAX_SEGMENTS = 1024;
+    /**
+     * Шаг кол-ва отрезков у больших ломаных
+     */
+    private static final int SEGMENTS_STEP = 8;
+    /**
+     * Кол-ва отрезков по уровням
+     */
+    private static final int[] SEGMENTS;
+    /**
+     * Максимальный радиус в пикселях, который рисуется ломаной уровня
+     */
+    private static final double[] MAX_RADIUS;
+    /**
+     * Таблицы по уровням, создаются при первом запросе
+     */
+    private static final AtomicReferenceArray<double[]> TABLES;
+
+    static {
+        int levels = SEGMENTS_STEP - MIN_SEGMENTS + MAX_SEGMENTS / SEGMENTS_STEP;
+        SEGMENTS = new int[levels];
+        MAX_RADIUS = new double[levels];
+        for (int level = 0; level < levels; level++) {
+            // до шага кол-во отрезков растёт на единицу, дальше на шаг
+            int segments = MIN_SEGMENTS + level;
+            if (segments > SEGMENTS_STEP)
+                segments = (level - (SEGMENTS_STEP - MIN_SEGMENTS) + 1) * SEGMENTS_STEP;
+            SEGMENTS[level] = segments;
+            // отклонение середины отрезка от окружности равно r * (1 - cos(pi / n))
+            MAX_RADIUS[level] = TOLERANCE / (1 - Math.cos(Math.PI / segments));
+        }
+        TABLES = new AtomicReferenceArray<>(levels);
+    }
+
+    /**
+     * Уровень ломаной, отклоняющейся от окружности
+     * не больше чем на допустимое кол-во пикселей
+     *
+     * @param radPx радиус на экране в пикселях
+     * @return уровень
+     */
+    public static int level(double radPx) {
+        // двоичный поиск первого уровня, которому хватает отрезков
+        int from = 0, to = SEGMENTS.length - 1;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (MAX_RADIUS[mid] >= radPx)
+                to = mid;
+            else
+                from = mid + 1;
+        }
+        return from;
+    }
+
+    /**
+     * Кол-во уровней
+     *
+     * @return кол-во уровней
+     */
+    public static int levels() {
+        return SEGMENTS.length;
+    }
+
+    /**
+     * Кол-во отрезков ломаной уровня
+     *
+     * @param level уровень
+     * @return кол-во отрезков
+     */
+    public static int segments(int level) {
+        return SEGMENTS[level];
+    }
+
+    /**
+     * Таблица вершин ломаной уровня
+     *
+     * @param level уровень
+     * @return косинусы и синусы вершин вперемешку: cos0, sin0, cos1, sin1...
+     */
+    public static double[] table(int level) {
+        double[] table = TABLES.get(level);
+        if (table == null) {
+            // при гонке потоков таблица просто посчитается дважды
+            int segments = SEGMENTS[level];
+            table = new double[2 * segments];
+            double step = 2 * Math.PI / segments;
+            for (int k = 0; k < segments; k++) {
+                table[2 * k] = Math.cos(k * step);
+                table[2 * k + 1] = Math.sin(k * step);
+            }
+            TABLES.set(level, table);
+        }
+        return table;
+    }
+
+    /**
+     * Запрещаем вызов конструктора
+     */
+    private UnitCircles() {
+        throw new AssertionError("Вызов этого конструктора запрещён!");
+    }
+}
@@ -58,6 +58,8 @@ public class Button extends MultiLineLabel {
      */
     @Override
     public void paintImpl(Canvas canvas, CoordinateSystem2i windowCS) {
+        // размеры подложки берём из разметки текста
+        updateLayout();
         // сохраняем канвасы
         canvas.save();
         if (selected) {
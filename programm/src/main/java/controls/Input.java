@@ -27,7 +27,7 @@ public class Input extends GridPanel {
      * (модификатор доступа по умолчанию, чтобы был доступен
      * фабрике InputFactory внутри пакета)
      */
-    boolean focused = false;
+    volatile boolean focused = false;
     private static final int LOCAL_PADDING = 8;
     /**
      * Флаг, нужно ли выравнивать текст по центру по вертикали
@@ -107,21 +107,20 @@ public class Input extends GridPanel {
             canvas.drawRRect(RRect.makeXYWH(0, 0, windowCS.getSize().x, INPUT_SIZE, 4), paint);
             // начальное положение
             float y = INPUT_SIZE - LOCAL_PADDING - metrics.getDescent();
-            // создаём строку для рисования
-            try (TextLine line = TextLine.make(text, FONT18)) {
+            // берём сформированную строку из кэша
+            TextLine line = TextLayoutCache.get(text, FONT18);
+            // смещаем область рисования
+            canvas.translate(LOCAL_PADDING, y);
+            // задаём цвет текста
+            paint.setColor(textColor);
+            // рисуем линию текста
+            canvas.drawTextLine(line, 0, 0, paint);
+            // если время рисовать курсор
+            if (focused && InputFactory.cursorDraw()) {
                 // смещаем область рисования
-                canvas.translate(LOCAL_PADDING, y);
-                // задаём цвет текста
-                paint.setColor(textColor);
-                // рисуем линию текста
-                canvas.drawTextLine(line, 0, 0, paint);
-                // если время рисовать курсор
-                if (focused && InputFactory.cursorDraw()) {
-                    // смещаем область рисования
-                    canvas.translate(line.getWidth(), 0);
-                    // рисуем его
-                    canvas.drawRect(Rect.makeXYWH(0, metrics.getAscent(), 2, metrics.getHeight()), paint);
-                }
+                canvas.translate(line.getWidth(), 0);
+                // рисуем его
+                canvas.drawRect(Rect.makeXYWH(0, metrics.getAscent(), 2, metrics.getHeight()), paint);
             }
             // восстанавливаем область рисования
             canvas.restore();
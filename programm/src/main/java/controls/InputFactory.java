@@ -1,5 +1,6 @@
 package controls;
 
+import app.FrameScheduler;
 import io.github.humbleui.jwm.Window;
 
 import java.util.ArrayList;
@@ -22,7 +23,7 @@ public class InputFactory {
     /**
      * флаг, нужно ли рисовать курсоа
      */
-    private static boolean cursorDraw = true;
+    private static volatile boolean cursorDraw = true;
     /**
      * группа индексов для переключения по tab
      */
@@ -35,10 +36,16 @@ public class InputFactory {
     static {
         // запускаем таймер, срабатывающий каждые 500 мс
         // он попеременно включает и выключает рисование курсора
-        // для имитации мигания
+        // для имитации мигания, кадр запрашивается, только
+        // если курсор сейчас виден хотя бы в одном поле
         timer.schedule(new TimerTask() {
             public void run() {
-                cursorDraw = !cursorDraw;
+                if (hasFocused()) {
+                    cursorDraw = !cursorDraw;
+                    FrameScheduler.invalidate();
+                } else {
+                    cursorDraw = true;
+                }
             }
         }, 0, 500);
     }
@@ -71,7 +78,9 @@ public class InputFactory {
         Input input = new Input(
                 window, drawBG, backgroundColor, padding, gridWidth, gridHeight,
                 gridX, gridY, colspan, rowspan, text, vcentered, textColor);
-        inputs.add(input);
+        synchronized (inputs) {
+            inputs.add(input);
+        }
         if (addToTabGroup) {
             tabGroup.add(inputs.size() - 1);
         }
@@ -92,6 +101,20 @@ public class InputFactory {
             input.focused = false;
     }
 
+    /**
+     * Есть ли поле ввода с фокусом
+     *
+     * @return флаг
+     */
+    private static boolean hasFocused() {
+        synchronized (inputs) {
+            for (Input input : inputs)
+                if (input.focused)
+                    return true;
+        }
+        return false;
+    }
+
     /**
      * Нужно ли рисовать курсор сейчас
      *
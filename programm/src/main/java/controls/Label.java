@@ -54,20 +54,19 @@ public class Label extends GridPanel {
     public void paintImpl(Canvas canvas, CoordinateSystem2i windowCS) {
         // сохраняем область рисования
         canvas.save();
-        // создаём линию
-        try (TextLine line = TextLine.make(text, FONT12)) {
-            // получаем высоту текста
-            int capHeight = (int) FONT12.getMetrics().getCapHeight();
-            // если нужно центрировать по горизонтали
-            if (centered)
-                canvas.translate((windowCS.getSize().x - line.getWidth()) / 2.0f, 0);
-            if (vcentered)
-                canvas.translate(0, (windowCS.getSize().y - capHeight) / 2.0f);
+        // берём сформированную линию из кэша
+        TextLine line = TextLayoutCache.get(text, FONT12);
+        // получаем высоту текста
+        int capHeight = (int) FONT12.getMetrics().getCapHeight();
+        // если нужно центрировать по горизонтали
+        if (centered)
+            canvas.translate((windowCS.getSize().x - line.getWidth()) / 2.0f, 0);
+        if (vcentered)
+            canvas.translate(0, (windowCS.getSize().y - capHeight) / 2.0f);
 
-            // рисуем текст
-            try (Paint fg = new Paint().setColor(LABEL_TEXT_COLOR)) {
-                canvas.drawTextLine(line, 0, capHeight, fg);
-            }
+        // рисуем текст
+        try (Paint fg = new Paint().setColor(LABEL_TEXT_COLOR)) {
+            canvas.drawTextLine(line, 0, capHeight, fg);
         }
         // восстанавливаем области рисования
         canvas.restore();
@@ -26,6 +26,14 @@ public class MultiLineLabel extends GridPanel {
      * Последняя ширина текста
      */
     protected int lastTextWidth;
+    /**
+     * Текст, для которого посчитана разметка
+     */
+    private String layoutText;
+    /**
+     * Строки текста
+     */
+    private String[] lines;
     /**
      * Флаг, нужно ли выравнивать текст по центру по горизонтали
      */
@@ -63,6 +71,31 @@ public class MultiLineLabel extends GridPanel {
         this.vcentered = vcentered;
     }
 
+    /**
+     * Обновить разметку текста, если он изменился с прошлого кадра
+     */
+    protected void updateLayout() {
+        if (text.equals(layoutText))
+            return;
+        layoutText = text;
+        lines = text.split("\n");
+        // высота текста
+        int capHeight = (int) FONT12.getMetrics().getCapHeight();
+        // начальное значение для последней сохранённой высоты
+        lastTextHeight = capHeight;
+        // начальное значение для последней сохранённой ширины
+        lastTextWidth = 0;
+        // перебираем строки текста
+        for (String lineText : lines) {
+            // последняя сохранённая ширина будет равна максимальной ширине строки
+            lastTextWidth = Math.max((int) TextLayoutCache.get(lineText, FONT12).getWidth() + 2 * padding, lastTextWidth);
+            // последняя сохранённая высота равна y-координате
+            lastTextHeight += 2 * capHeight;
+        }
+        // увеличиваем последнюю сохранённую высоту на высоту текста
+        lastTextHeight += capHeight;
+    }
+
     /**
      * Метод под рисование в конкретной реализации
      *
@@ -71,30 +104,13 @@ public class MultiLineLabel extends GridPanel {
      */
     @Override
     public void paintImpl(Canvas canvas, CoordinateSystem2i windowCS) {
+        updateLayout();
         // сохраняем области рисования
         canvas.save();
         // высота текста
         int capHeight = (int) FONT12.getMetrics().getCapHeight();
         // говорим, что первая y координата - это высота текста
         int y = capHeight;
-        // начальное значение для последней сохранённой высоты
-        lastTextHeight = y;
-        // начальное значение для последней сохранённой ширины
-        lastTextWidth = 0;
-
-
-        // перебираем строки текста
-        for (String lineText : text.split("\n")) {
-            // создаём линию как объект рисования
-            try (TextLine line = TextLine.make(lineText, FONT12)) {
-                // последняя сохранённая ширина будет равна максимальной ширине строки
-                lastTextWidth = Math.max((int) line.getWidth() + 2 * padding, lastTextWidth);
-            }
-            // последняя сохранённая высота равна y-координате
-            lastTextHeight += 2 * capHeight;
-        }
-        // увеличиваем последнюю сохранённую высоту на высоту текста
-        lastTextHeight += capHeight;
 
         // если нужно центрировать по горизонтали
         if (centered)
@@ -105,25 +121,24 @@ public class MultiLineLabel extends GridPanel {
 
         try (Paint fg = new Paint().setColor(MULTILINE_TEXT_COLOR)) {
             // перебираем строки текста
-            for (String lineText : text.split("\n")) {
-                // создаём линию как объект рисования
-                try (TextLine line = TextLine.make(lineText, FONT12)) {
-                    // рисуем линию
-                    canvas.save();
+            for (String lineText : lines) {
+                // строка уже сформирована при разметке
+                TextLine line = TextLayoutCache.get(lineText, FONT12);
+                // рисуем линию
+                canvas.save();
 
-                    // если нужно центрировать по горизонтали
-                    if (centered)
-                        canvas.translate((lastTextWidth - line.getWidth()) / 2, 0);
+                // если нужно центрировать по горизонтали
+                if (centered)
+                    canvas.translate((lastTextWidth - line.getWidth()) / 2, 0);
 
-                    canvas.drawTextLine(line, padding, y + padding + capHeight, fg);
-                    // увеличиваем y координату на двойную высоту текста
-                    y += 2 * capHeight;
-                    canvas.restore();
-                }
+                canvas.drawTextLine(line, padding, y + padding + capHeight, fg);
+                // увеличиваем y координату на двойную высоту текста
+                y += 2 * capHeight;
+                canvas.restore();
             }
         }
 
         // восстанавливаем области рисования
         canvas.restore();
     }
-}
\ No newline at end of file
+}
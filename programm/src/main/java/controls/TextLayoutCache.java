@@ -0,0 +1,83 @@
+package controls;
+
+import io.github.humbleui.skija.Font;
+import io.github.humbleui.skija.TextLine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш сформированных строк текста: строка формируется один раз
+ * и переиспользуется, пока не изменится текст или шрифт.
+ * Давно не использованные строки вытесняются и освобождаются
+ */
+public class TextLayoutCache {
+    /**
+     * Максимальное кол-во строк в кэше
+     */
+    public static final int MAX_LINES = 512;
+    /**
+     * Строки в порядке последнего использования
+     */
+    private static final Map<Key, TextLine> lines = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, TextLine> eldest) {
+            if (size() <= MAX_LINES)
+                return false;
+            eldest.getValue().close();
+            return true;
+        }
+    };
+
+    /**
+     * Ключ строки
+     *
+     * @param text текст
+     * @param font шрифт
+     */
+    private record Key(String text, Font font) {
+    }
+
+    /**
+     * Получить сформированную строку. Строка принадлежит кэшу, поэтому
+     * её нельзя закрывать и нельзя хранить дольше рисования кадра
+     *
+     * @param text текст
+     * @param font шрифт
+     * @return строка
+     */
+    public static synchronized TextLine get(String text, Font font) {
+        Key key = new Key(text, font);
+        TextLine line = lines.get(key);
+        if (line == null) {
+            line = TextLine.make(text, font);
+            lines.put(key, line);
+        }
+        return line;
+    }
+
+    /**
+     * Кол-во строк в кэше
+     *
+     * @return кол-во строк
+     */
+    public static synchronized int size() {
+        return lines.size();
+    }
+
+    /**
+     * Освободить все строки
+     */
+    public static synchronized void clear() {
+        for (TextLine line : lines.values())
+            line.close();
+        lines.clear();
+    }
+
+    /**
+     * Запрещаем вызов конструктора
+     */
+    private TextLayoutCache() {
+        throw new AssertionError("Вызов этого конструктора запрещён!");
+    }
+}
@@ -0,0 +1,123 @@
+package files;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import static files.BinaryScene.BUFFER_CIRCLES;
+import static files.BinaryScene.CIRCLE_SIZE;
+
+/**
+ * Последовательное чтение окружностей из двоичного файла задачи
+ */
+public class BinaryCircleReader implements CircleReader {
+    /**
+     * Канал файла
+     */
+    private final ReadableByteChannel channel;
+    /**
+     * Буфер окружностей
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_CIRCLES * CIRCLE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    /**
+     * Кол-во ещё не прочитанных из файла окружностей
+     */
+    private long left;
+    /**
+     * Координаты центра и радиус текущей окружности
+     */
+    private double x, y, rad;
+
+    /**
+     * Открыть файл
+     *
+     * @param file файл задачи
+     * @throws IOException ошибка открытия или неверный формат
+     */
+    public BinaryCircleReader(File file) throws IOException {
+        this(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    /**
+     * Читать окружности из канала, например, распакованного потока
+     *
+     * @param channel канал, закрывается вместе с читателем
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    public BinaryCircleReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        try {
+            left = BinaryScene.readHeader(channel).count();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        buffer.limit(0);
+    }
+
+    /**
+     * Перейти к следующей окружности
+     *
+     * @return флаг, прочитана ли окружность
+     * @throws IOException ошибка чтения
+     */
+    @Override
+    public boolean next() throws IOException {
+        if (!buffer.hasRemaining()) {
+            if (left == 0)
+                return false;
+            int cnt = (int) Math.min(BUFFER_CIRCLES, left);
+            buffer.clear().limit(cnt * CIRCLE_SIZE);
+            BinaryScene.readFully(channel, buffer);
+            left -= cnt;
+        }
+        x = buffer.getDouble();
+        y = buffer.getDouble();
+        rad = buffer.getDouble();
+        return true;
+    }
+
+    /**
+     * x-координата центра текущей окружности
+     *
+     * @return x-координата центра
+     */
+    @Override
+    public double x() {
+        return x;
+    }
+
+    /**
+     * y-координата центра текущей окружности
+     *
+     * @return y-координата центра
+     */
+    @Override
+    public double y() {
+        return y;
+    }
+
+    /**
+     * Радиус текущей окружности
+     *
+     * @return радиус
+     */
+    @Override
+    public double rad() {
+        return rad;
+    }
+
+    /**
+     * Закрыть файл
+     *
+     * @throws IOException ошибка закрытия
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,285 @@
+package files;
+
+import app.CircleStore;
+import app.MappedCircleStore;
+import app.Scene;
+import app.Task;
+import misc.CoordinateSystem2d;
+import misc.Vector2d;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Двоичный формат задачи: заголовок с сигнатурой, версией, СК задачи
+ * и кол-вом окружностей, за ним окружности как тройки x, y, радиус.
+ * Все числа записываются в порядке little-endian
+ */
+public class BinaryScene {
+    /**
+     * Расширение файлов двоичного формата
+     */
+    public static final String EXTENSION = ".bin";
+    /**
+     * Сигнатура, байты "CIRC"
+     */
+    public static final int MAGIC = 0x43524943;
+    /**
+     * Версия формата
+     */
+    public static final int VERSION = 1;
+    /**
+     * Размер заголовка в байтах: сигнатура, версия, 4 границы СК и кол-во
+     */
+    public static final int HEADER_SIZE = 4 + 4 + 4 * 8 + 8;
+    /**
+     * Размер окружности в байтах
+     */
+    public static final int CIRCLE_SIZE = 3 * 8;
+    /**
+     * Кол-во окружностей в буфере чтения и записи
+     */
+    static final int BUFFER_CIRCLES = 1 << 14;
+
+    /**
+     * Заголовок файла
+     *
+     * @param ownCS СК задачи
+     * @param count кол-во окружностей
+     */
+    public record Header(CoordinateSystem2d ownCS, long count) {
+    }
+
+    /**
+     * Проверить, что файл нужно читать и писать в двоичном формате,
+     * расширение сжатия при этом не учитывается
+     *
+     * @param file файл
+     * @return флаг
+     */
+    public static boolean matches(File file) {
+        return Codec.baseName(file).endsWith(EXTENSION);
+    }
+
+    /**
+     * Записать снимок задачи
+     *
+     * @param scene снимок задачи
+     * @param file  файл
+     * @throws IOException ошибка записи
+     */
+    public static void write(Scene scene, File file) throws IOException {
+        write(scene, file, new Progress());
+    }
+
+    /**
+     * Записать снимок задачи, сообщая о ходе записи
+     *
+     * @param scene    снимок задачи
+     * @param file     файл
+     * @param progress ход записи
+     * @throws IOException ошибка записи
+     */
+    public static void write(Scene scene, File file, Progress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(scene, channel, progress);
+        }
+    }
+
+    /**
+     * Записать снимок задачи в канал
+     *
+     * @param scene   снимок задачи
+     * @param channel канал
+     * @throws IOException ошибка записи
+     */
+    public static void write(Scene scene, WritableByteChannel channel) throws IOException {
+        write(scene, channel, new Progress());
+    }
+
+    /**
+     * Записать снимок задачи в канал, сообщая о ходе записи
+     *
+     * @param scene    снимок задачи
+     * @param channel  канал
+     * @param progress ход записи
+     * @throws IOException ошибка записи
+     */
+    public static void write(Scene scene, WritableByteChannel channel, Progress progress) throws IOException {
+        CircleStore circles = scene.circles;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_CIRCLES * CIRCLE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION)
+                .putDouble(scene.ownCS.getMin().x).putDouble(scene.ownCS.getMin().y)
+                .putDouble(scene.ownCS.getMax().x).putDouble(scene.ownCS.getMax().y)
+                .putLong(circles.size());
+        for (int i = 0; i < circles.size(); i++) {
+            if (buffer.remaining() < CIRCLE_SIZE) {
+                progress.addBytes(flush(buffer, channel));
+                progress.accept(i);
+            }
+            buffer.putDouble(circles.x(i)).putDouble(circles.y(i)).putDouble(circles.rad(i));
+        }
+        progress.addBytes(flush(buffer, channel));
+        progress.accept(circles.size());
+    }
+
+    /**
+     * Прочитать задачу
+     *
+     * @param file файл
+     * @return задача
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    public static Task read(File file) throws IOException {
+        return read(file, new Progress());
+    }
+
+    /**
+     * Прочитать задачу, сообщая о ходе чтения
+     *
+     * @param file     файл
+     * @param progress ход чтения
+     * @return задача
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    public static Task read(File file, Progress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            // файл обрезан, если окружностей в нём меньше, чем в заголовке
+            if (channel.size() < HEADER_SIZE + header.count * CIRCLE_SIZE)
+                throw new EOFException("в файле " + file + " меньше окружностей, чем в заголовке");
+            // размер файла проверен, поэтому хранилище можно выделить сразу целиком
+            return read(channel, header, (int) header.count, progress);
+        }
+    }
+
+    /**
+     * Прочитать задачу из канала, например, распакованного потока
+     *
+     * @param channel  канал
+     * @param progress ход чтения
+     * @return задача
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    public static Task read(ReadableByteChannel channel, Progress progress) throws IOException {
+        // длина канала неизвестна, и кол-ву в заголовке верить нельзя:
+        // хранилище растёт по мере того, как окружности действительно прочитаны
+        Header header = readHeader(channel);
+        return read(channel, header, (int) Math.min(header.count, BUFFER_CIRCLES), progress);
+    }
+
+    /**
+     * Прочитать окружности после заголовка
+     *
+     * @param channel  канал, стоящий после заголовка
+     * @param header   заголовок
+     * @param capacity начальная ёмкость хранилища
+     * @param progress ход чтения
+     * @return задача
+     * @throws IOException ошибка чтения
+     */
+    private static Task read(ReadableByteChannel channel, Header header, int capacity, Progress progress) throws IOException {
+        progress.addBytes(HEADER_SIZE);
+        CircleStore circles = CircleStore.create(capacity);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_CIRCLES * CIRCLE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (long read = 0; read < header.count; ) {
+            int cnt = (int) Math.min(BUFFER_CIRCLES, header.count - read);
+            buffer.clear().limit(cnt * CIRCLE_SIZE);
+            readFully(channel, buffer);
+            for (int i = 0; i < cnt; i++)
+                circles.add(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+            read += cnt;
+            progress.addBytes((long) cnt * CIRCLE_SIZE);
+            progress.accept(read);
+        }
+        return new Task(header.ownCS, circles);
+    }
+
+    /**
+     * Открыть задачу, отобразив окружности файла в память без копирования
+     *
+     * @param file файл
+     * @return задача над отображённым файлом
+     * @throws IOException ошибка отображения или неверный формат
+     */
+    public static Task map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Header header = readHeader(channel);
+            if (channel.size() < HEADER_SIZE + header.count * CIRCLE_SIZE)
+                throw new EOFException("в файле " + file + " меньше окружностей, чем в заголовке");
+            // отображение остаётся доступным и после закрытия канала
+            return new Task(header.ownCS, new MappedCircleStore(
+                    file.toPath(), channel, HEADER_SIZE, (int) header.count, ByteOrder.LITTLE_ENDIAN
+            ));
+        }
+    }
+
+    /**
+     * Прочитать и проверить заголовок
+     *
+     * @param channel канал
+     * @return заголовок
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    public static Header readHeader(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, buffer);
+        if (buffer.getInt() != MAGIC)
+            throw new IOException("файл не является двоичным файлом задачи");
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("неподдерживаемая версия двоичного формата: " + version);
+        Vector2d min = new Vector2d(buffer.getDouble(), buffer.getDouble());
+        Vector2d max = new Vector2d(buffer.getDouble(), buffer.getDouble());
+        long count = buffer.getLong();
+        if (count < 0 || count > Integer.MAX_VALUE)
+            throw new IOException("неверное кол-во окружностей: " + count);
+        return new Header(new CoordinateSystem2d(min, max), count);
+    }
+
+    /**
+     * Заполнить буфер из канала целиком и подготовить его к чтению
+     *
+     * @param channel канал
+     * @param buffer  буфер
+     * @throws IOException ошибка чтения или конец файла
+     */
+    static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0)
+                throw new EOFException("неожиданный конец двоичного файла задачи");
+        buffer.flip();
+    }
+
+    /**
+     * Записать буфер в канал и очистить его
+     *
+     * @param buffer  буфер
+     * @param channel канал
+     * @return кол-во записанных байт
+     * @throws IOException ошибка записи
+     */
+    private static int flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        int cnt = buffer.remaining();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+        return cnt;
+    }
+
+    /**
+     * Запрещаем вызов конструктора
+     */
+    private BinaryScene() {
+        throw new AssertionError("Вызов этого конструктора запрещён!");
+    }
+}
@@ -0,0 +1,62 @@
+package files;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+
+/**
+ * Последовательное чтение окружностей из файла без загрузки всей задачи
+ */
+public interface CircleReader extends Closeable {
+    /**
+     * Открыть файл задачи на чтение окружностей
+     *
+     * @param file файл задачи
+     * @return читатель окружностей
+     * @throws IOException ошибка открытия
+     */
+    static CircleReader open(File file) throws IOException {
+        // формат выбираем по расширению, как и при загрузке задачи,
+        // а сжатие - по первым байтам файла
+        if (Codec.detect(file) != Codec.NONE) {
+            InputStream in = Codec.open(file);
+            if (BinaryScene.matches(file))
+                return new BinaryCircleReader(Channels.newChannel(in));
+            return new JsonCircleReader(in);
+        }
+        if (BinaryScene.matches(file))
+            return new BinaryCircleReader(file);
+        return new JsonCircleReader(file);
+    }
+
+    /**
+     * Перейти к следующей окружности
+     *
+     * @return флаг, прочитана ли окружность
+     * @throws IOException ошибка чтения
+     */
+    boolean next() throws IOException;
+
+    /**
+     * x-координата центра текущей окружности
+     *
+     * @return x-координата центра
+     */
+    double x();
+
+    /**
+     * y-координата центра текущей окружности
+     *
+     * @return y-координата центра
+     */
+    double y();
+
+    /**
+     * Радиус текущей окружности
+     *
+     * @return радиус
+     */
+    double rad();
+}
@@ -0,0 +1,174 @@
+package files;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Сжатие файла задачи поверх json или двоичного формата. При чтении сжатие
+ * определяется по первым байтам файла, при записи - по последнему расширению:
+ * {@code conf.json.gz}, {@code conf.bin.zz}
+ */
+public enum Codec {
+    /**
+     * Без сжатия
+     */
+    NONE,
+    /**
+     * gzip, первые байты 1f 8b
+     */
+    GZIP,
+    /**
+     * deflate в обёртке zlib, первый байт 78 для окна 32 КБ
+     */
+    DEFLATE;
+
+    /**
+     * Размер буферов сжатия
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Расширение файлов, сжатых этим способом
+     *
+     * @return расширение, пустое для {@link #NONE}
+     */
+    public String getExtension() {
+        return switch (this) {
+            case NONE -> "";
+            case GZIP -> ".gz";
+            case DEFLATE -> ".zz";
+        };
+    }
+
+    /**
+     * Способ сжатия для записи файла, выбирается по расширению
+     *
+     * @param file файл
+     * @return способ сжатия
+     */
+    public static Codec forName(File file) {
+        for (Codec codec : values())
+            if (codec != NONE && file.getName().endsWith(codec.getExtension()))
+                return codec;
+        return NONE;
+    }
+
+    /**
+     * Имя файла без расширения сжатия, по нему выбирается формат задачи
+     *
+     * @param file файл
+     * @return имя файла без расширения сжатия
+     */
+    public static String baseName(File file) {
+        String name = file.getName();
+        return name.substring(0, name.length() - forName(file).getExtension().length());
+    }
+
+    /**
+     * Определить способ сжатия по первым байтам файла
+     *
+     * @param file файл
+     * @return способ сжатия
+     * @throws IOException ошибка чтения
+     */
+    public static Codec detect(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return detect(in.read(), in.read());
+        }
+    }
+
+    /**
+     * Определить способ сжатия по первым двум байтам
+     *
+     * @param b0 первый байт или -1
+     * @param b1 второй байт или -1
+     * @return способ сжатия
+     */
+    public static Codec detect(int b0, int b1) {
+        if (b0 == 0x1f && b1 == 0x8b)
+            return GZIP;
+        // метод сжатия 8 в младших битах и контрольная сумма заголовка zlib;
+        // json начинается с '{' или пробела, двоичный формат - с 'C'
+        if (b0 >= 0 && b1 >= 0 && (b0 & 0x0f) == 8 && (b0 >> 4) <= 7 && (b0 << 8 | b1) % 31 == 0)
+            return DEFLATE;
+        return NONE;
+    }
+
+    /**
+     * Распаковывать поток по мере чтения
+     *
+     * @param in сжатый поток, закрывается вместе с результатом
+     * @return распакованный поток
+     * @throws IOException ошибка чтения заголовка
+     */
+    public InputStream decode(InputStream in) throws IOException {
+        return switch (this) {
+            case NONE -> in;
+            case GZIP -> new GZIPInputStream(in, BUFFER_SIZE);
+            case DEFLATE -> new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    // свой распаковщик поток сам не освобождает
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            };
+        };
+    }
+
+    /**
+     * Сжимать поток по мере записи
+     *
+     * @param out поток, куда пишутся сжатые данные, закрывается вместе с результатом
+     * @return поток для записи несжатых данных
+     * @throws IOException ошибка записи заголовка
+     */
+    public OutputStream encode(OutputStream out) throws IOException {
+        return switch (this) {
+            case NONE -> out;
+            case GZIP -> new GZIPOutputStream(new BufferedOutputStream(out, BUFFER_SIZE), BUFFER_SIZE);
+            case DEFLATE -> new DeflaterOutputStream(new BufferedOutputStream(out, BUFFER_SIZE), new Deflater(), BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    // свой сжиматель поток сам не освобождает
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
+        };
+    }
+
+    /**
+     * Открыть файл на чтение, распаковывая его, если он сжат
+     *
+     * @param file файл
+     * @return распакованный поток
+     * @throws IOException ошибка открытия
+     */
+    public static InputStream open(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            return detect(file).decode(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package files;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Потоковое чтение массива circles из json файла задачи. Радиус читается
+ * из поля rad, как его пишет задача, и из поля radius, как его называет
+ * конструктор {@link app.Circle} для databinding: прежний загрузчик принимал
+ * оба имени, поэтому принимает и этот
+ */
+public class JsonCircleReader implements CircleReader {
+    /**
+     * Фабрика парсеров
+     */
+    private static final JsonFactory FACTORY = JsonScene.MAPPER.getFactory();
+    /**
+     * Парсер
+     */
+    private final JsonParser parser;
+    /**
+     * Флаг, найден ли массив окружностей
+     */
+    private boolean inArray;
+    /**
+     * Флаг, закрывать ли парсер в конце массива: чужой парсер
+     * после массива ещё читается дальше
+     */
+    private final boolean ownParser;
+    /**
+     * Координаты центра и радиус текущей окружности
+     */
+    private double x, y, rad;
+
+    /**
+     * Открыть файл
+     *
+     * @param file файл задачи
+     * @throws IOException ошибка открытия
+     */
+    public JsonCircleReader(File file) throws IOException {
+        parser = FACTORY.createParser(file);
+        ownParser = true;
+    }
+
+    /**
+     * Читать окружности из потока, например, распакованного
+     *
+     * @param in поток, закрывается вместе с читателем
+     * @throws IOException ошибка открытия
+     */
+    public JsonCircleReader(InputStream in) throws IOException {
+        parser = FACTORY.createParser(in);
+        ownParser = true;
+    }
+
+    /**
+     * Читать окружности из массива, начало которого парсер уже прочитал
+     *
+     * @param parser парсер, стоящий на начале массива окружностей
+     */
+    JsonCircleReader(JsonParser parser) {
+        this.parser = parser;
+        inArray = true;
+        ownParser = false;
+    }
+
+    /**
+     * Найти массив окружностей на верхнем уровне объекта задачи
+     *
+     * @return флаг, найден ли массив
+     * @throws IOException ошибка чтения
+     */
+    private boolean findArray() throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT)
+            throw new JsonParseException(parser, "ожидался объект задачи");
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("circles".equals(name) && token == JsonToken.START_ARRAY)
+                return true;
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Перейти к следующей окружности
+     *
+     * @return флаг, прочитана ли окружность
+     * @throws IOException ошибка чтения
+     */
+    @Override
+    public boolean next() throws IOException {
+        if (!inArray) {
+            if (parser.isClosed() || !findArray()) {
+                parser.close();
+                return false;
+            }
+            inArray = true;
+        }
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            if (ownParser)
+                parser.close();
+            return false;
+        }
+        if (token != JsonToken.START_OBJECT)
+            throw new JsonParseException(parser, "ожидался объект окружности");
+        x = 0;
+        y = 0;
+        rad = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "center" -> readCenter();
+                // radius - имя параметра конструктора окружности для databinding
+                case "rad", "radius" -> rad = parser.getDoubleValue();
+                default -> parser.skipChildren();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Прочитать центр окружности
+     *
+     * @throws IOException ошибка чтения
+     */
+    private void readCenter() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "x" -> x = parser.getDoubleValue();
+                case "y" -> y = parser.getDoubleValue();
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * x-координата центра текущей окружности
+     *
+     * @return x-координата центра
+     */
+    @Override
+    public double x() {
+        return x;
+    }
+
+    /**
+     * y-координата центра текущей окружности
+     *
+     * @return y-координата центра
+     */
+    @Override
+    public double y() {
+        return y;
+    }
+
+    /**
+     * Радиус текущей окружности
+     *
+     * @return радиус
+     */
+    @Override
+    public double rad() {
+        return rad;
+    }
+
+    /**
+     * Закрыть файл
+     *
+     * @throws IOException ошибка закрытия
+     */
+    @Override
+    public void close() throws IOException {
+        if (ownParser)
+            parser.close();
+    }
+}
@@ -0,0 +1,307 @@
+package files;
+
+import app.CircleStore;
+import app.Scene;
+import app.Task;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import misc.CoordinateSystem2d;
+import misc.Vector2d;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Потоковое чтение и запись json файла задачи по токенам, без
+ * databinding для каждой окружности. Схема та же, что у Jackson для {@link Task}:
+ * {@code {"@class":"app.Task","ownCS":{...},"circles":[{"center":{"x":..,"y":..},"rad":..}],"solved":..}}
+ */
+public class JsonScene {
+    /**
+     * Общий маппер, парсеры и генераторы создаются его фабрикой
+     */
+    public static final ObjectMapper MAPPER = new ObjectMapper();
+    /**
+     * Кол-во окружностей в порции, после каждой порции сообщается о ходе чтения и записи
+     */
+    public static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Прочитать задачу
+     *
+     * @param file файл
+     * @return задача
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    public static Task read(File file) throws IOException {
+        return read(file, new Progress());
+    }
+
+    /**
+     * Прочитать задачу, сообщая о ходе чтения
+     *
+     * @param file     файл
+     * @param progress ход чтения
+     * @return задача
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    public static Task read(File file, Progress progress) throws IOException {
+        return read(progress.count(new FileInputStream(file)), progress);
+    }
+
+    /**
+     * Прочитать задачу из потока, поток закрывается
+     *
+     * @param in       поток
+     * @param progress получает кол-во прочитанных окружностей после каждой порции
+     * @return задача
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    public static Task read(InputStream in, LongConsumer progress) throws IOException {
+        try (JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            return read(parser, progress);
+        }
+    }
+
+    /**
+     * Прочитать задачу парсером
+     *
+     * @param parser   парсер
+     * @param progress получает кол-во прочитанных окружностей после каждой порции
+     * @return задача
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    private static Task read(JsonParser parser, LongConsumer progress) throws IOException {
+        CircleStore circles = CircleStore.create(0);
+        CoordinateSystem2d ownCS = read(parser, circles, () -> {
+        }, progress);
+        return new Task(ownCS, circles);
+    }
+
+    /**
+     * Прочитать задачу из потока порциями, например, чтобы добавить её окружности
+     * в уже открытую задачу через {@link Task#addCircles(CircleStore)}. Поток закрывается
+     *
+     * @param in       поток
+     * @param chunks   получает порции до {@link #CHUNK_SIZE} окружностей, хранилище
+     *                 порции используется снова после возврата из обработчика
+     * @param progress получает кол-во прочитанных окружностей после каждой порции
+     * @return СК задачи из файла
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    public static CoordinateSystem2d read(InputStream in, Consumer<CircleStore> chunks, LongConsumer progress) throws IOException {
+        CircleStore chunk = CircleStore.create(CHUNK_SIZE);
+        try (JsonParser parser = MAPPER.getFactory().createParser(in)) {
+            return read(parser, chunk, () -> {
+                if (chunk.size() > 0)
+                    chunks.accept(chunk);
+                chunk.clear();
+            }, progress);
+        }
+    }
+
+    /**
+     * Прочитать задачу парсером
+     *
+     * @param parser   парсер
+     * @param circles  хранилище, куда добавляются окружности
+     * @param onChunk  вызывается после каждой порции окружностей и в конце массива
+     * @param progress получает кол-во прочитанных окружностей после каждой порции
+     * @return СК задачи
+     * @throws IOException ошибка чтения или неверный формат
+     */
+    private static CoordinateSystem2d read(
+            JsonParser parser, CircleStore circles, Runnable onChunk, LongConsumer progress
+    ) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT)
+            throw new JsonParseException(parser, "ожидался объект задачи");
+        CoordinateSystem2d ownCS = null;
+        // порядок полей не важен: окружности могут идти и до СК
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("ownCS".equals(name) && token == JsonToken.START_OBJECT)
+                ownCS = readCS(parser);
+            else if ("circles".equals(name) && token == JsonToken.START_ARRAY)
+                readCircles(parser, circles, onChunk, progress);
+            else
+                parser.skipChildren();
+        }
+        if (ownCS == null)
+            throw new JsonParseException(parser, "в файле задачи нет СК задачи");
+        return ownCS;
+    }
+
+    /**
+     * Прочитать окружности массива
+     *
+     * @param parser   парсер, стоящий на начале массива
+     * @param circles  хранилище, куда добавляются окружности
+     * @param onChunk  вызывается после каждой порции окружностей и в конце массива
+     * @param progress получает кол-во прочитанных окружностей после каждой порции
+     * @throws IOException ошибка чтения
+     */
+    private static void readCircles(
+            JsonParser parser, CircleStore circles, Runnable onChunk, LongConsumer progress
+    ) throws IOException {
+        JsonCircleReader reader = new JsonCircleReader(parser);
+        long cnt = 0;
+        while (reader.next()) {
+            circles.add(reader.x(), reader.y(), reader.rad());
+            if (++cnt % CHUNK_SIZE == 0) {
+                onChunk.run();
+                progress.accept(cnt);
+            }
+        }
+        onChunk.run();
+        progress.accept(cnt);
+    }
+
+    /**
+     * Прочитать СК задачи
+     *
+     * @param parser парсер, стоящий на начале объекта СК
+     * @return СК задачи
+     * @throws IOException ошибка чтения
+     */
+    private static CoordinateSystem2d readCS(JsonParser parser) throws IOException {
+        Vector2d min = null;
+        Vector2d max = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "min" -> min = readVector(parser);
+                case "max" -> max = readVector(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        if (min == null || max == null)
+            throw new JsonParseException(parser, "у СК задачи нет границ");
+        return new CoordinateSystem2d(min, max);
+    }
+
+    /**
+     * Прочитать вектор
+     *
+     * @param parser парсер, стоящий на начале объекта вектора
+     * @return вектор
+     * @throws IOException ошибка чтения
+     */
+    private static Vector2d readVector(JsonParser parser) throws IOException {
+        double x = 0;
+        double y = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "x" -> x = parser.getDoubleValue();
+                case "y" -> y = parser.getDoubleValue();
+                default -> parser.skipChildren();
+            }
+        }
+        return new Vector2d(x, y);
+    }
+
+    /**
+     * Записать снимок задачи
+     *
+     * @param scene снимок задачи
+     * @param file  файл
+     * @throws IOException ошибка записи
+     */
+    public static void write(Scene scene, File file) throws IOException {
+        write(scene, file, new Progress());
+    }
+
+    /**
+     * Записать снимок задачи, сообщая о ходе записи
+     *
+     * @param scene    снимок задачи
+     * @param file     файл
+     * @param progress ход записи
+     * @throws IOException ошибка записи
+     */
+    public static void write(Scene scene, File file, Progress progress) throws IOException {
+        write(scene, progress.count(new FileOutputStream(file)), progress);
+    }
+
+    /**
+     * Записать снимок задачи в поток, поток закрывается
+     *
+     * @param scene    снимок задачи
+     * @param out      поток
+     * @param progress получает кол-во записанных окружностей после каждой порции
+     * @throws IOException ошибка записи
+     */
+    public static void write(Scene scene, OutputStream out, LongConsumer progress) throws IOException {
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+            write(scene, generator, progress);
+        }
+    }
+
+    /**
+     * Записать снимок задачи генератором
+     *
+     * @param scene     снимок задачи
+     * @param generator генератор
+     * @param progress  получает кол-во записанных окружностей после каждой порции
+     * @throws IOException ошибка записи
+     */
+    private static void write(Scene scene, JsonGenerator generator, LongConsumer progress) throws IOException {
+        CircleStore circles = scene.circles;
+        generator.writeStartObject();
+        generator.writeStringField("@class", Task.class.getName());
+        generator.writeObjectFieldStart("ownCS");
+        writeVector(generator, "min", scene.ownCS.getMin());
+        writeVector(generator, "max", scene.ownCS.getMax());
+        generator.writeEndObject();
+        generator.writeArrayFieldStart("circles");
+        for (int i = 0; i < circles.size(); i++) {
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("center");
+            generator.writeNumberField("x", circles.x(i));
+            generator.writeNumberField("y", circles.y(i));
+            generator.writeEndObject();
+            generator.writeNumberField("rad", circles.rad(i));
+            generator.writeEndObject();
+            if ((i + 1) % CHUNK_SIZE == 0)
+                progress.accept(i + 1);
+        }
+        generator.writeEndArray();
+        generator.writeBooleanField("solved", scene.answer1 >= 0);
+        generator.writeEndObject();
+        progress.accept(circles.size());
+    }
+
+    /**
+     * Записать вектор полем объекта
+     *
+     * @param generator генератор
+     * @param name      имя поля
+     * @param v         вектор
+     * @throws IOException ошибка записи
+     */
+    private static void writeVector(JsonGenerator generator, String name, Vector2d v) throws IOException {
+        generator.writeObjectFieldStart(name);
+        generator.writeNumberField("x", v.x);
+        generator.writeNumberField("y", v.y);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Запрещаем вызов конструктора
+     */
+    private JsonScene() {
+        throw new AssertionError("Вызов этого конструктора запрещён!");
+    }
+}
@@ -0,0 +1,205 @@
+package files;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Ход чтения или записи файла задачи: кол-во обработанных байт и окружностей.
+ * Обновляется потоком, который работает с файлом, а читается и отменяется
+ * из любого другого. О ходе работы сообщается не чаще, чем раз в {@link #REPORT_INTERVAL} мс
+ */
+public class Progress implements LongConsumer {
+    /**
+     * Минимальный промежуток между сообщениями о ходе работы в мс
+     */
+    public static final long REPORT_INTERVAL = 500;
+    /**
+     * Обработчик сообщений о ходе работы
+     */
+    private final Consumer<Progress> listener;
+    /**
+     * Кол-во обработанных байт
+     */
+    private volatile long bytes;
+    /**
+     * Кол-во обработанных окружностей
+     */
+    private volatile long circles;
+    /**
+     * Размер сжатого файла в байтах, 0, если файл не сжат
+     */
+    private volatile long fileBytes;
+    /**
+     * Флаг, отменена ли работа
+     */
+    private volatile boolean cancelled;
+    /**
+     * Время последнего сообщения о ходе работы
+     */
+    private long lastReport = System.currentTimeMillis();
+
+    /**
+     * Ход работы без сообщений
+     */
+    public Progress() {
+        this(progress -> {
+        });
+    }
+
+    /**
+     * Ход работы с сообщениями
+     *
+     * @param listener обработчик сообщений, вызывается в потоке, который работает с файлом
+     */
+    public Progress(Consumer<Progress> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Отметить кол-во обработанных окружностей, здесь же работа прерывается,
+     * если её отменили
+     *
+     * @param circles кол-во обработанных окружностей
+     * @throws CancellationException работа отменена
+     */
+    @Override
+    public void accept(long circles) {
+        this.circles = circles;
+        if (cancelled)
+            throw new CancellationException("работа с файлом отменена");
+        long now = System.currentTimeMillis();
+        if (now - lastReport >= REPORT_INTERVAL) {
+            lastReport = now;
+            listener.accept(this);
+        }
+    }
+
+    /**
+     * Добавить обработанные байты
+     *
+     * @param cnt кол-во байт
+     */
+    public void addBytes(long cnt) {
+        bytes += cnt;
+    }
+
+    /**
+     * Считать байты, прочитанные из потока
+     *
+     * @param in поток
+     * @return поток, который считает байты
+     */
+    public InputStream count(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0)
+                    addBytes(1);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int cnt = super.read(b, off, len);
+                if (cnt > 0)
+                    addBytes(cnt);
+                return cnt;
+            }
+        };
+    }
+
+    /**
+     * Считать байты, записанные в поток
+     *
+     * @param out поток
+     * @return поток, который считает байты
+     */
+    public OutputStream count(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                addBytes(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                // FilterOutputStream пишет массив по одному байту
+                out.write(b, off, len);
+                addBytes(len);
+            }
+        };
+    }
+
+    /**
+     * Отменить работу, она прервётся на следующей порции окружностей
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Флаг, отменена ли работа
+     *
+     * @return флаг
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Кол-во обработанных байт
+     *
+     * @return кол-во байт
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Кол-во обработанных окружностей
+     *
+     * @return кол-во окружностей
+     */
+    public long getCircles() {
+        return circles;
+    }
+
+    /**
+     * Задать размер сжатого файла, кол-во байт при этом остаётся несжатым
+     *
+     * @param fileBytes размер файла в байтах
+     */
+    public void setFileBytes(long fileBytes) {
+        this.fileBytes = fileBytes;
+    }
+
+    /**
+     * Размер сжатого файла
+     *
+     * @return размер в байтах, 0, если файл не сжат
+     */
+    public long getFileBytes() {
+        return fileBytes;
+    }
+
+    /**
+     * Строковое представление объекта
+     *
+     * @return строковое представление объекта
+     */
+    @Override
+    public String toString() {
+        String s = "байт: " + bytes + ", окружностей: " + circles;
+        if (fileBytes > 0 && bytes > 0)
+            s += ", сжато до " + fileBytes + " байт (" + fileBytes * 100 / bytes + "%)";
+        return s;
+    }
+}
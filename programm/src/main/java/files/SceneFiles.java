@@ -0,0 +1,218 @@
+package files;
+
+import app.CircleStore;
+import app.MappedCircleStore;
+import app.Scene;
+import app.Task;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Чтение и запись файлов задачи, формат выбирается по расширению файла:
+ * двоичный для {@link BinaryScene#EXTENSION}, потоковый json ({@link JsonScene}) для остальных.
+ * Любой формат может быть сжат ({@link Codec}): сжатие при чтении определяется по первым
+ * байтам файла, а при записи - по расширению. Несжатые двоичные файлы отображаются
+ * в память, если это выбрано в настройках хранилища
+ */
+public class SceneFiles {
+    /**
+     * Суффикс временного файла, в который идёт запись до переименования
+     */
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Прочитать задачу
+     *
+     * @param file файл
+     * @return задача
+     * @throws IOException ошибка чтения
+     */
+    public static Task read(File file) throws IOException {
+        return read(file, new Progress());
+    }
+
+    /**
+     * Прочитать задачу, сообщая о ходе чтения
+     *
+     * @param file     файл
+     * @param progress ход чтения, через него же чтение можно отменить
+     * @return задача
+     * @throws IOException ошибка чтения
+     */
+    public static Task read(File file, Progress progress) throws IOException {
+        if (Codec.detect(file) != Codec.NONE) {
+            // сжатый файл не отобразить, он распаковывается по мере чтения
+            Task task;
+            try (InputStream in = Codec.open(file)) {
+                task = BinaryScene.matches(file)
+                        ? BinaryScene.read(Channels.newChannel(in), progress)
+                        : JsonScene.read(progress.count(in), progress);
+            }
+            progress.setFileBytes(file.length());
+            return task;
+        }
+        if (BinaryScene.matches(file)) {
+            if (!CircleStore.isMappingEnabled())
+                return BinaryScene.read(file, progress);
+            // отображение не читает файл, окружности подгрузятся при обращении
+            Task task = BinaryScene.map(file);
+            progress.addBytes(file.length());
+            progress.accept(task.getScene().circles.size());
+            return task;
+        }
+        return JsonScene.read(file, progress);
+    }
+
+    /**
+     * Записать задачу
+     *
+     * @param task задача
+     * @param file файл
+     * @throws IOException ошибка записи
+     */
+    public static void write(Task task, File file) throws IOException {
+        write(task.getScene(), file, new Progress());
+    }
+
+    /**
+     * Записать снимок задачи, сообщая о ходе записи. Запись идёт во временный
+     * файл рядом с целевым, который потом переименовывается в целевой, поэтому
+     * прерванная запись не оставляет обрезанного файла. На POSIX системах
+     * переименование оставляет прежнее отображение файла в память рабочим,
+     * а Windows не даёт заменить отображённый файл: там запись в него
+     * отклоняется сразу, до записи временного файла
+     *
+     * @param scene    снимок задачи
+     * @param file     файл
+     * @param progress ход записи, через него же запись можно отменить
+     * @throws IOException ошибка записи
+     */
+    public static void write(Scene scene, File file, Progress progress) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        if (MappedCircleStore.isFileMapped(target) &&
+                !target.getFileSystem().supportedFileAttributeViews().contains("posix"))
+            throw new IOException("файл " + file + " отображён в память открытой задачей, " +
+                    "его нельзя заменить, сохраните задачу в другой файл");
+        Path temp = createTemp(target);
+        try {
+            // формат и сжатие выбираются по целевому файлу, а не по временному
+            Codec codec = Codec.forName(file);
+            if (codec != Codec.NONE) {
+                try (OutputStream out = codec.encode(new FileOutputStream(temp.toFile()))) {
+                    if (BinaryScene.matches(file))
+                        BinaryScene.write(scene, Channels.newChannel(out), progress);
+                    else
+                        JsonScene.write(scene, progress.count(out), progress);
+                }
+                progress.setFileBytes(Files.size(temp));
+            } else if (BinaryScene.matches(file))
+                BinaryScene.write(scene, temp.toFile(), progress);
+            else
+                JsonScene.write(scene, temp.toFile(), progress);
+            // данные должны быть на диске раньше, чем файл заменит прежний
+            force(temp);
+            move(temp, target);
+            forceDirectory(target.getParent());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Создать временный файл рядом с целевым. {@link Files#createTempFile} создаёт
+     * файл, доступный только владельцу, поэтому файл создаётся с обычными правами,
+     * а если целевой файл уже есть, ему задаются права целевого
+     *
+     * @param target целевой файл
+     * @return временный файл
+     * @throws IOException ошибка создания
+     */
+    private static Path createTemp(Path target) throws IOException {
+        Path temp;
+        while (true) {
+            String suffix = Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36);
+            temp = target.resolveSibling(target.getFileName() + "." + suffix + TEMP_SUFFIX);
+            try {
+                Files.createFile(temp);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // имя занято, пробуем другое
+            }
+        }
+        PosixFileAttributeView view = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (view != null && Files.exists(target)) {
+            try {
+                Files.setPosixFilePermissions(temp, view.readAttributes().permissions());
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+        }
+        return temp;
+    }
+
+    /**
+     * Сбросить записанные данные файла на диск
+     *
+     * @param file файл
+     * @throws IOException ошибка записи
+     */
+    private static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Сбросить на диск запись папки о переименовании. Не все системы
+     * позволяют открыть папку как файл, там запись сбрасывает сама система
+     *
+     * @param dir папка
+     */
+    private static void forceDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // например, на Windows папку открыть нельзя
+        }
+    }
+
+    /**
+     * Заменить целевой файл временным
+     *
+     * @param temp   временный файл
+     * @param target целевой файл
+     * @throws IOException ошибка переименования
+     */
+    private static void move(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            // файловая система не умеет атомарно, но файл всё равно
+            // заменяется только полностью записанным
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Запрещаем вызов конструктора
+     */
+    private SceneFiles() {
+        throw new AssertionError("Вызов этого конструктора запрещён!");
+    }
+}
@@ -0,0 +1,44 @@
+package misc;
+
+import java.util.Arrays;
+
+/**
+ * Растущий массив целых чисел без упаковки в объекты,
+ * поля открыты для перебора в горячих циклах
+ */
+public class IntList {
+    /**
+     * Элементы
+     */
+    public int[] items = new int[4];
+    /**
+     * Кол-во элементов
+     */
+    public int size = 0;
+
+    /**
+     * Добавить элемент
+     *
+     * @param v элемент
+     */
+    public void add(int v) {
+        if (size == items.length)
+            items = Arrays.copyOf(items, size * 2);
+        items[size++] = v;
+    }
+
+    /**
+     * Удалить индекс и уменьшить на единицу индексы после него
+     *
+     * @param index удаляемый индекс
+     */
+    public void remove(int index) {
+        int cnt = 0;
+        for (int a = 0; a < size; a++) {
+            int v = items[a];
+            if (v != index)
+                items[cnt++] = v > index ? v - 1 : v;
+        }
+        size = cnt;
+    }
+}
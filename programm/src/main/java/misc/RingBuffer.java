@@ -0,0 +1,95 @@
+package misc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Кольцевой буфер фиксированной ёмкости: новый элемент
+ * вытесняет самый старый. Запись и чтение можно вести
+ * из разных потоков
+ *
+ * @param <T> тип элементов
+ */
+public class RingBuffer<T> {
+    /**
+     * Элементы
+     */
+    private final Object[] items;
+    /**
+     * Кол-во добавленных за всё время элементов
+     */
+    private long added;
+
+    /**
+     * Кольцевой буфер
+     *
+     * @param capacity ёмкость
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("ёмкость должна быть положительной: " + capacity);
+        items = new Object[capacity];
+    }
+
+    /**
+     * Добавить элемент
+     *
+     * @param item элемент
+     */
+    public synchronized void add(T item) {
+        items[(int) (added % items.length)] = item;
+        added++;
+    }
+
+    /**
+     * Кол-во хранящихся элементов
+     *
+     * @return кол-во элементов
+     */
+    public synchronized int size() {
+        return (int) Math.min(added, items.length);
+    }
+
+    /**
+     * Кол-во добавленных за всё время элементов
+     *
+     * @return кол-во элементов
+     */
+    public synchronized long getAdded() {
+        return added;
+    }
+
+    /**
+     * Ёмкость
+     *
+     * @return ёмкость
+     */
+    public int getCapacity() {
+        return items.length;
+    }
+
+    /**
+     * Получить последние элементы, начиная с самого нового
+     *
+     * @param skip кол-во пропускаемых самых новых элементов
+     * @param cnt  максимальное кол-во элементов
+     * @return элементы от новых к старым
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<T> getLast(int skip, int cnt) {
+        int size = size();
+        List<T> result = new ArrayList<>(Math.max(0, Math.min(cnt, size - skip)));
+        for (int k = skip; k < size && k < skip + cnt; k++)
+            result.add((T) items[(int) ((added - 1 - k) % items.length)]);
+        return result;
+    }
+
+    /**
+     * Удалить все элементы
+     */
+    public synchronized void clear() {
+        Arrays.fill(items, null);
+        added = 0;
+    }
+}
@@ -171,18 +171,20 @@ public class PanelControl extends GridPanel {
                 true, true);
         solve.setOnClick(() -> {
             if (!PanelRendering.task.isSolved()) {
-                PanelRendering.task.solve();
-                String s;
-                if (!PanelRendering.task.getCrossed().isEmpty()) {
-                    s = "Задача решена\n" +
-                            "Окружность №1: " + PanelRendering.task.getCrossed().get(0).toString() + "\n" +
-                            "Окружность №2: " + PanelRendering.task.getCrossed().get(1).toString() + "\n" +
-                            "Длина пересечения: " + Vector2d.subtract(PanelRendering.task.getPointing()[0], PanelRendering.task.getPointing()[1]).length();
-                } else {
-                    s = "Задача не имеет реший";
-                }
-                PanelLog.success(s);
-                solve.text = "Сбросить";
+                // решаем в фоне, ответ придёт в поток окна
+                PanelRendering.solveAsync(() -> {
+                    String s;
+                    if (!PanelRendering.task.getCrossed().isEmpty()) {
+                        s = "Задача решена\n" +
+                                "Окружность №1: " + PanelRendering.task.getCrossed().get(0).toString() + "\n" +
+                                "Окружность №2: " + PanelRendering.task.getCrossed().get(1).toString() + "\n" +
+                                "Длина пересечения: " + Vector2d.subtract(PanelRendering.task.getPointing()[0], PanelRendering.task.getPointing()[1]).length();
+                    } else {
+                        s = "Задача не имеет реший";
+                    }
+                    PanelLog.success(s);
+                    solve.text = "Сбросить";
+                });
             } else {
                 cancelTask();
             }
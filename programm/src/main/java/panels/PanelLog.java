@@ -1,5 +1,6 @@
 package panels;
 
+import app.FrameScheduler;
 import controls.Label;
 import io.github.humbleui.jwm.*;
 import io.github.humbleui.skija.Canvas;
@@ -7,11 +8,12 @@ import io.github.humbleui.skija.FontMetrics;
 import io.github.humbleui.skija.Paint;
 import misc.CoordinateSystem2i;
 import misc.Misc;
+import misc.RingBuffer;
 
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
 
 import static app.Application.PANEL_PADDING;
@@ -23,13 +25,30 @@ import static app.Fonts.FONT12;
  */
 public class PanelLog extends GridPanel {
     /**
-     * Заголовок
+     * Кол-во хранящихся записей лога
      */
-    private static final int LOG_LINES_CNT = 15;
+    private static final int LOG_CAPACITY = 10000;
     /**
-     * Список записей лога
+     * Записи лога
      */
-    private static final List<Record> logs = new ArrayList<>();
+    private static final RingBuffer<Record> logs = new RingBuffer<>(LOG_CAPACITY);
+    /**
+     * Кол-во строк, на которое прокручивается лог колесом мыши
+     */
+    private static final int SCROLL_STEP = 3;
+    /**
+     * Формат времени записи
+     */
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("  HH:mm:ss").withZone(ZoneId.systemDefault());
+    /**
+     * Кол-во пропущенных при рисовании самых новых записей
+     */
+    private int scroll;
+    /**
+     * Кол-во записей лога в момент прокрутки
+     */
+    private long scrollAdded;
     /**
      * Максимальная длина строки лога
      */
@@ -73,7 +92,37 @@ public class PanelLog extends GridPanel {
     /**
      * Запись
      */
-    record Record(RecordType recordType, String text, Date date) {
+    static final class Record {
+        /**
+         * Тип записи
+         */
+        final RecordType recordType;
+        /**
+         * Текст записи
+         */
+        final String text;
+        /**
+         * Время записи
+         */
+        final long time;
+        /**
+         * Строка для вывода, формируется при первом рисовании
+         */
+        private String formatted;
+
+        /**
+         * Запись
+         *
+         * @param recordType тип записи
+         * @param text       текст записи
+         * @param time       время записи в мс
+         */
+        Record(RecordType recordType, String text, long time) {
+            this.recordType = recordType;
+            this.text = text;
+            this.time = time;
+        }
+
         /**
          * Строковое представление объекта
          *
@@ -81,7 +130,13 @@ public class PanelLog extends GridPanel {
          */
         @Override
         public String toString() {
-            return new SimpleDateFormat("  HH:mm:ss").format(date) + ": " + text;
+            // гонка потоков безопасна: строка просто сформируется дважды
+            String result = formatted;
+            if (result == null) {
+                result = TIME_FORMAT.format(Instant.ofEpochMilli(time)) + ": " + text;
+                formatted = result;
+            }
+            return result;
         }
     }
 
@@ -116,13 +171,26 @@ public class PanelLog extends GridPanel {
      * @param text       текст записи
      */
     public static void addToLog(RecordType recordType, String text) {
+        long time = System.currentTimeMillis();
         for (String line : text.split("\n")) {
-            for (String limitedLine : Misc.limit(line, MAX_LOG_LINE_LENGTH)) {
-                while (logs.size() > LOG_LINES_CNT)
-                    logs.remove(0);
-                logs.add(new Record(recordType, limitedLine, Calendar.getInstance().getTime()));
-            }
+            for (String limitedLine : Misc.limit(line, MAX_LOG_LINE_LENGTH))
+                logs.add(new Record(recordType, limitedLine, time));
         }
+        // запись могла прийти из другого потока
+        FrameScheduler.invalidate();
+    }
+
+    /**
+     * Получить последние записи лога
+     *
+     * @param cnt максимальное кол-во записей
+     * @return тексты записей от новых к старым
+     */
+    public static List<String> getLast(int cnt) {
+        List<String> result = new ArrayList<>();
+        for (Record log : logs.getLast(0, cnt))
+            result.add(log.text);
+        return result;
     }
 
     /**
@@ -168,7 +236,24 @@ public class PanelLog extends GridPanel {
      */
     @Override
     public void accept(Event e) {
+        super.accept(e);
+        // колесом мыши прокручиваем историю
+        if (e instanceof EventMouseScroll ee && lastInside && ee.getDeltaY() != 0) {
+            scroll = Math.max(0, Math.min(logs.size() - 1, getScroll() + (ee.getDeltaY() > 0 ? SCROLL_STEP : -SCROLL_STEP)));
+            scrollAdded = logs.getAdded();
+        }
+    }
 
+    /**
+     * Кол-во пропускаемых самых новых записей с учётом записей,
+     * добавленных после прокрутки: прокрученный лог стоит на месте
+     *
+     * @return кол-во записей
+     */
+    private int getScroll() {
+        if (scroll == 0)
+            return 0;
+        return (int) Math.min(logs.size() - 1, scroll + logs.getAdded() - scrollAdded);
     }
 
     /**
@@ -187,10 +272,10 @@ public class PanelLog extends GridPanel {
             canvas.save();
             // смещаем область рисования
             canvas.translate(padding, windowCS.getSize().y - padding - metrics.getDescent());
-            // перебираем записи лога
-            for (int i = logs.size() - 1; i >= 0; --i) {
-                // получаем запись лога
-                Record log = logs.get(i);
+            // рисуем только помещающиеся в панель записи
+            int lineHeight = (int) metrics.getCapHeight() + 8;
+            int visible = windowCS.getSize().y / lineHeight + 1;
+            for (Record log : logs.getLast(getScroll(), visible)) {
                 // задаём цвет лога
                 paint.setColor(getColor(log.recordType));
                 // выводим строку на экран
@@ -1,19 +1,42 @@
 package panels;
 
 import app.Task;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import app.FrameScheduler;
+import app.OffHeapCircleStore;
+import app.Scene;
+import app.TileCache;
+import files.Progress;
+import files.SceneFiles;
+import io.github.humbleui.jwm.App;
 import io.github.humbleui.jwm.Event;
+import io.github.humbleui.jwm.EventKey;
 import io.github.humbleui.jwm.EventMouseButton;
+import io.github.humbleui.jwm.EventMouseMove;
+import io.github.humbleui.jwm.EventMouseScroll;
+import io.github.humbleui.jwm.MouseButton;
 import io.github.humbleui.jwm.Window;
 import io.github.humbleui.skija.Canvas;
+import io.github.humbleui.skija.Paint;
+import io.github.humbleui.skija.PaintMode;
 import misc.CoordinateSystem2d;
 import misc.CoordinateSystem2i;
 import misc.Vector2d;
+import misc.Vector2i;
+import solvers.SolveMode;
+import solvers.StreamingSolver;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import static app.Application.MODIFIER;
+import static app.Colors.PROGRESS_COLOR;
+import static app.Fonts.FONT12;
 
 
 /**
@@ -23,7 +46,44 @@ public class PanelRendering extends GridPanel {
     /**
      * Представление проблемы
      */
-    public static Task task;
+    public static volatile Task task;
+    /**
+     * Кол-во окружностей, которое потоковое решение держит в памяти
+     */
+    private static final int STREAMING_BUDGET = 1 << 20;
+    /**
+     * Сдвиг видимой области по стрелкам в пикселях
+     */
+    private static final int PAN_STEP = 50;
+    /**
+     * Поток для решения и загрузки, чтобы не останавливать окно
+     */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "background");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * Описание выполняемой в фоне работы, null, если работы нет
+     */
+    private static volatile String busyText;
+    /**
+     * Время начала фоновой работы
+     */
+    private static volatile long busyStart;
+    /**
+     * Ход фоновой работы с файлом, null, если работу нельзя отменить
+     */
+    private static volatile Progress busyProgress;
+    /**
+     * Плитки слоя окружностей
+     */
+    private final TileCache tiles = new TileCache();
+    /**
+     * Последнее положение мыши при перетаскивании видимой области,
+     * null, если перетаскивания нет
+     */
+    private Vector2i dragPos;
 
     /**
      * Панель управления
@@ -67,11 +127,31 @@ public class PanelRendering extends GridPanel {
         // вызываем обработчик предка
         super.accept(e);
         if (e instanceof EventMouseButton ee) {
-            // если последнее положение мыши сохранено и курсор был внутри
-            if (lastMove != null && lastInside) {
+            if (ee.getButton() == MouseButton.SECONDARY) {
+                // правой кнопкой перетаскиваем видимую область
+                dragPos = ee.isPressed() && lastMove != null && lastInside ? lastMove : null;
+            } else if (lastMove != null && lastInside) {
+                // если последнее положение мыши сохранено и курсор был внутри
                 // обрабатываем клик по задаче
                 task.click(lastWindowCS.getRelativePos(lastMove));
             }
+        } else if (e instanceof EventMouseMove) {
+            if (dragPos != null) {
+                task.pan(Vector2i.subtract(lastMove, dragPos));
+                dragPos = lastMove;
+            }
+        } else if (e instanceof EventMouseScroll ee) {
+            // колесом приближаем относительно точки под мышью
+            if (lastMove != null && lastInside && ee.getDeltaY() != 0)
+                task.zoom(ee.getDeltaY() > 0 ? 1 : -1, lastWindowCS.getRelativePos(lastMove));
+        } else if (e instanceof EventKey ee) {
+            if (ee.isPressed() && lastInside && !ee.isModifierDown(MODIFIER))
+                switch (ee.getKey()) {
+                    case LEFT -> task.pan(new Vector2i(PAN_STEP, 0));
+                    case RIGHT -> task.pan(new Vector2i(-PAN_STEP, 0));
+                    case UP -> task.pan(new Vector2i(0, PAN_STEP));
+                    case DOWN -> task.pan(new Vector2i(0, -PAN_STEP));
+                }
         }
     }
 
@@ -83,36 +163,234 @@ public class PanelRendering extends GridPanel {
      */
     @Override
     public void paintImpl(Canvas canvas, CoordinateSystem2i windowCS) {
-        task.paint(canvas, windowCS);
+        // слой окружностей рисуется из плиток, перерисовываются только новые
+        tiles.paint(canvas, task, windowCS);
+        task.paintOverlay(canvas, windowCS);
+        if (busyText != null)
+            paintProgress(canvas);
+    }
+
+    /**
+     * Нарисовать индикатор фоновой работы
+     *
+     * @param canvas область рисования
+     */
+    private void paintProgress(Canvas canvas) {
+        long elapsed = System.currentTimeMillis() - busyStart;
+        try (Paint paint = new Paint().setColor(PROGRESS_COLOR).setMode(PaintMode.STROKE).setStrokeWidth(3)) {
+            // дуга делает оборот в секунду
+            canvas.drawArc(padding, padding, padding + 20, padding + 20, elapsed % 1000 * 0.36f, 270, false, paint);
+            paint.setMode(PaintMode.FILL);
+            Progress progress = busyProgress;
+            canvas.drawString(busyText + ": " + elapsed / 1000 + " с" + (progress != null ? ", " + progress : ""),
+                    padding + 30, padding + 15, FONT12, paint);
+        }
+        // пока работа идёт, индикатор анимируется
+        FrameScheduler.invalidate();
     }
+
+    /**
+     * Выполнить работу в фоне, пока она идёт, рисуется индикатор
+     *
+     * @param text   описание работы
+     * @param job    работа
+     * @param onDone обработчик результата, вызывается в потоке окна
+     * @param <T>    тип результата
+     */
+    private static <T> void runInBackground(String text, Callable<T> job, Consumer<T> onDone) {
+        runInBackground(text, null, job, onDone);
+    }
+
+    /**
+     * Выполнить работу в фоне, пока она идёт, рисуется индикатор
+     *
+     * @param text     описание работы
+     * @param progress ход работы, через него работу можно отменить, или null
+     * @param job      работа
+     * @param onDone   обработчик результата, вызывается в потоке окна
+     * @param <T>      тип результата
+     */
+    private static <T> void runInBackground(String text, Progress progress, Callable<T> job, Consumer<T> onDone) {
+        if (busyText != null) {
+            PanelLog.warning("дождитесь окончания: " + busyText);
+            return;
+        }
+        busyStart = System.currentTimeMillis();
+        busyText = text;
+        busyProgress = progress;
+        FrameScheduler.invalidate();
+        executor.submit(() -> {
+            try {
+                T result = job.call();
+                App.runOnUIThread(() -> {
+                    finishBackground();
+                    onDone.accept(result);
+                });
+            } catch (CancellationException e) {
+                App.runOnUIThread(() -> {
+                    finishBackground();
+                    PanelLog.warning(text + ": отменено");
+                });
+            } catch (Exception e) {
+                App.runOnUIThread(() -> {
+                    finishBackground();
+                    PanelLog.error(text + ": ошибка\n" + e);
+                });
+            }
+        });
+    }
+
+    /**
+     * Отметить, что фоновая работа закончилась
+     */
+    private static void finishBackground() {
+        busyText = null;
+        busyProgress = null;
+    }
+
+    /**
+     * Отменить фоновую работу с файлом
+     */
+    public static void cancel() {
+        String text = busyText;
+        Progress progress = busyProgress;
+        if (text == null)
+            PanelLog.warning("фоновой работы нет");
+        else if (progress == null)
+            PanelLog.warning("эту работу нельзя отменить: " + text);
+        else {
+            progress.cancel();
+            PanelLog.info("отмена: " + text);
+        }
+    }
+
+    /**
+     * Ход работы с файлом, о котором сообщается в лог
+     *
+     * @param text описание работы
+     * @return ход работы
+     */
+    private static Progress logProgress(String text) {
+        // сообщения приходят из фонового потока, лог к этому готов
+        return new Progress(progress -> PanelLog.info(text + ": " + progress));
+    }
+
+    /**
+     * Решить задачу в фоне по снимку сцены
+     *
+     * @param onSolved обработчик решения, вызывается в потоке окна
+     */
+    public static void solveAsync(Runnable onSolved) {
+        Task current = task;
+        Scene scene = current.getScene();
+        SolveMode mode = current.getSolveMode();
+        if (mode == SolveMode.INCREMENTAL) {
+            // поддерживаемая лучшая пара уже посчитана, фон не нужен
+            if (current.hasIncremental()) {
+                current.solve();
+                onSolved.run();
+                return;
+            }
+            // первую сетку строим в фоне по снимку, дальше она обновляется при изменениях
+            runInBackground("построение сетки", () -> Task.buildIncremental(scene), solver -> {
+                if (task == current && current.applyIncremental(scene, solver))
+                    onSolved.run();
+                else
+                    PanelLog.warning("задача изменилась во время решения, ответ отброшен");
+            });
+            return;
+        }
+        runInBackground("решение", () -> Task.solve(scene, mode), solution -> {
+            if (task == current && current.applySolution(scene, solution))
+                onSolved.run();
+            else
+                PanelLog.warning("задача изменилась во время решения, ответ отброшен");
+        });
+    }
+    /**
+     * Найти самые длинные отрезки пересечения в фоне по снимку задачи
+     *
+     * @param k кол-во отрезков
+     */
+    public static void solveTopAsync(int k) {
+        Task current = task;
+        Scene scene = current.getScene();
+        runInBackground("поиск отрезков", () -> Task.findTop(scene, k), top -> {
+            if (task == current && current.applyTop(scene, top))
+                FrameScheduler.invalidate();
+            else
+                PanelLog.warning("задача изменилась во время поиска, отрезки отброшены");
+        });
+    }
+
     /**
      * Сохранить файл
      */
     public static void save() {
-        String path = "src/main/resources/conf.json";
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            objectMapper.writeValue(new File(path), task);
-            PanelLog.success("Файл " + path + " успешно сохранён");
-        } catch (IOException e) {
-            PanelLog.error("не получилось записать файл \n" + e);
-        }
+        save("src/main/resources/conf.json");
     }
+
     /**
-     * Загружаем из файла
+     * Сохранить задачу в файл в фоне, формат выбирается по расширению.
+     * Сохраняется снимок задачи на момент вызова, файл заменяется только
+     * полностью записанным
      *
      * @param path путь к файлу
      */
-    public static void loadFromFile(String path) {
-        // создаём загрузчик JSON
-        ObjectMapper objectMapper = new ObjectMapper();
-        try {
-            // считываем систему координат
-            task = objectMapper.readValue(new File(path), Task.class);
-            PanelLog.success("Файл " + path + " успешно загружен");
-        } catch (IOException e) {
-            PanelLog.error("Не получилось прочитать файл " + path + "\n" + e);
-        }
+    public static void save(String path) {
+        Scene scene = task.getScene();
+        String text = "сохранение " + path;
+        Progress progress = logProgress(text);
+        runInBackground(text, progress, () -> {
+            SceneFiles.write(scene, new File(path), progress);
+            return progress;
+        }, saved -> PanelLog.success("Файл " + path + " успешно сохранён, " + saved));
+    }
+    /**
+     * Загрузить задачу из файла в фоне
+     *
+     * @param path путь к файлу
+     */
+    public static void loadFromFileAsync(String path) {
+        String text = "загрузка " + path;
+        Progress progress = logProgress(text);
+        // задача заменяется в потоке окна, только когда файл прочитан целиком
+        runInBackground(text, progress, () -> SceneFiles.read(new File(path), progress), loaded -> {
+            PanelLog.info(text + ": " + progress);
+            loaded(path, loaded);
+        });
+    }
+
+    /**
+     * Заменить задачу загруженной
+     *
+     * @param path   путь к файлу
+     * @param loaded загруженная задача
+     */
+    private static void loaded(String path, Task loaded) {
+        task = loaded;
+        PanelLog.success("Файл " + path + " успешно загружен");
+        if (task.getOffHeapBytes() > 0)
+            PanelLog.info(OffHeapCircleStore.describeOffHeap(task.getOffHeapBytes()));
+    }
+
+    /**
+     * Решить задачу по файлу, не загружая его целиком
+     *
+     * @param path путь к файлу
+     */
+    public static void solveFromFile(String path) {
+        StreamingSolver solver = new StreamingSolver(STREAMING_BUDGET, PanelLog::info);
+        runInBackground("решение по файлу", () -> solver.solve(new File(path)), solution -> {
+            if (solution.isFound()) {
+                PanelLog.success("Задача по файлу " + path + " решена\n" +
+                        "Окружность №" + (solution.index1 + 1) + ": " + solver.getCrossed().get(0) + "\n" +
+                        "Окружность №" + (solution.index2 + 1) + ": " + solver.getCrossed().get(1) + "\n" +
+                        "Длина пересечения: " + solution.len);
+            } else {
+                PanelLog.success("Задача по файлу " + path + " не имеет решений");
+            }
+        });
     }
 
     /**
@@ -121,6 +399,6 @@ public class PanelRendering extends GridPanel {
     public static void load() {
         String path = "src/main/resources/conf.json";
         PanelLog.info("load from " + path);
-        loadFromFile(path);
+        loadFromFileAsync(path);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,54 @@
+package solvers;
+
+import app.CircleStore;
+import misc.CoordinateSystem2d;
+
+/**
+ * Метод ветвей и границ: длина отрезка пересечения пары не больше
+ * 2 * min(r1, r2), поэтому окружности перебираются по убыванию радиуса,
+ * и перебор останавливается, как только эта граница не может превзойти
+ * лучший найденный отрезок
+ */
+public class BranchAndBoundSolver implements Solver {
+    /**
+     * Относительный запас границы на погрешность вычисления длины отрезка
+     */
+    private static final double BOUND_EPS = 1e-9;
+
+    /**
+     * Найти лучшую пару
+     *
+     * @param circles хранилище окружностей
+     * @param ownCS   СК задачи
+     * @return лучшая пара
+     */
+    @Override
+    public Solution solve(CircleStore circles, CoordinateSystem2d ownCS) {
+        Solution solution = new Solution();
+        int n = circles.size();
+        double[] keys = new double[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = -circles.rad(i);
+        // индексы по убыванию радиуса
+        int[] order = Sorting.sortedIndices(keys);
+
+        for (int k = 1; k < n; k++) {
+            int cur = order[k];
+            // у всех оставшихся пар меньшая окружность не больше текущей
+            if (2 * circles.rad(cur) * (1 + BOUND_EPS) < solution.len)
+                break;
+            for (int a = 0; a < k; a++) {
+                int other = order[a];
+                // ограничивающие квадраты не пересекаются
+                double r = circles.rad(cur) + circles.rad(other);
+                if (Math.abs(circles.x(cur) - circles.x(other)) >= r || Math.abs(circles.y(cur) - circles.y(other)) >= r)
+                    continue;
+                int i = Math.min(cur, other), j = Math.max(cur, other);
+                solution.tested++;
+                if (Intersections.isCrossed(circles, i, j))
+                    solution.offer(Intersections.chordLength(circles, i, j), i, j);
+            }
+        }
+        return solution;
+    }
+}
@@ -0,0 +1,29 @@
+package solvers;
+
+import app.CircleStore;
+import misc.CoordinateSystem2d;
+
+/**
+ * Перебор всех пар окружностей, эталонный режим для тестов
+ */
+public class BruteForceSolver implements Solver {
+    /**
+     * Найти лучшую пару
+     *
+     * @param circles хранилище окружностей
+     * @param ownCS   СК задачи
+     * @return лучшая пара
+     */
+    @Override
+    public Solution solve(CircleStore circles, CoordinateSystem2d ownCS) {
+        Solution solution = new Solution();
+        for (int i = 0; i < circles.size(); ++i) {
+            for (int j = i + 1; j < circles.size(); ++j) {
+                solution.tested++;
+                if (Intersections.isCrossed(circles, i, j))
+                    solution.offer(Intersections.chordLength(circles, i, j), i, j);
+            }
+        }
+        return solution;
+    }
+}
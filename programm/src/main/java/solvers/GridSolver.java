@@ -0,0 +1,132 @@
+package solvers;
+
+import app.CircleStore;
+import misc.CoordinateSystem2d;
+
+/**
+ * Поиск пар по равномерной сетке: окружности раскладываются по ячейкам
+ * своих ограничивающих квадратов, проверяются только пары из общей ячейки
+ */
+public class GridSolver implements Solver {
+    /**
+     * Максимальное кол-во ячеек по одной оси
+     */
+    private static final int MAX_GRID_DIM = 2048;
+    /**
+     * Максимальное кол-во ячеек на одну окружность в среднем
+     */
+    private static final int CELLS_PER_CIRCLE = 4;
+    /**
+     * Максимальное кол-во записей в ячейках на одну окружность в среднем,
+     * после которого сетка вырождается и выгоднее перебор
+     */
+    private static final int MAX_ENTRIES_PER_CIRCLE = 32;
+    /**
+     * Какую долю кучи можно занять записями ячеек
+     */
+    private static final int MAX_HEAP_SHARE = 4;
+
+    /**
+     * Найти лучшую пару
+     *
+     * @param circles хранилище окружностей
+     * @param ownCS   СК задачи
+     * @return лучшая пара
+     */
+    @Override
+    public Solution solve(CircleStore circles, CoordinateSystem2d ownCS) {
+        Solution solution = new Solution();
+        int n = circles.size();
+        if (n < 2)
+            return solution;
+
+        // границы сетки: СК задачи и все ограничивающие квадраты
+        double minX = ownCS.getMin().x, minY = ownCS.getMin().y;
+        double maxX = ownCS.getMax().x, maxY = ownCS.getMax().y;
+        double radSum = 0;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, circles.x(i) - circles.rad(i));
+            minY = Math.min(minY, circles.y(i) - circles.rad(i));
+            maxX = Math.max(maxX, circles.x(i) + circles.rad(i));
+            maxY = Math.max(maxY, circles.y(i) + circles.rad(i));
+            radSum += circles.rad(i);
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+
+        // размер ячейки: не меньше среднего диаметра и не больше заданного кол-ва ячеек
+        double cell = 2 * radSum / n;
+        cell = Math.max(cell, Math.sqrt(width * height / ((double) CELLS_PER_CIRCLE * n)));
+        cell = Math.max(cell, Math.max(width, height) / MAX_GRID_DIM);
+        if (!(cell > 0) || Double.isInfinite(cell))
+            return new BruteForceSolver().solve(circles, ownCS);
+        int cols = Math.min((int) (width / cell) + 1, MAX_GRID_DIM);
+        int rows = Math.min((int) (height / cell) + 1, MAX_GRID_DIM);
+
+        // диапазоны ячеек каждой окружности
+        int[] x0 = new int[n], x1 = new int[n], y0 = new int[n], y1 = new int[n];
+        int[] start = new int[cols * rows + 1];
+        long entries = 0;
+        for (int i = 0; i < n; i++) {
+            x0[i] = cellPos(circles.x(i) - circles.rad(i), minX, cell, cols);
+            x1[i] = cellPos(circles.x(i) + circles.rad(i), minX, cell, cols);
+            y0[i] = cellPos(circles.y(i) - circles.rad(i), minY, cell, rows);
+            y1[i] = cellPos(circles.y(i) + circles.rad(i), minY, cell, rows);
+            entries += (long) (x1[i] - x0[i] + 1) * (y1[i] - y0[i] + 1);
+        }
+        // массив записей не должен сам по себе исчерпать кучу
+        long maxEntries = Math.min((long) MAX_ENTRIES_PER_CIRCLE * n,
+                Runtime.getRuntime().maxMemory() / MAX_HEAP_SHARE / Integer.BYTES);
+        if (entries > maxEntries)
+            return new BruteForceSolver().solve(circles, ownCS);
+
+        // раскладываем индексы по ячейкам (в каждой ячейке по возрастанию)
+        for (int i = 0; i < n; i++)
+            for (int y = y0[i]; y <= y1[i]; y++)
+                for (int x = x0[i]; x <= x1[i]; x++)
+                    start[y * cols + x + 1]++;
+        for (int k = 0; k < cols * rows; k++)
+            start[k + 1] += start[k];
+        int[] fill = new int[cols * rows];
+        int[] items = new int[(int) entries];
+        for (int i = 0; i < n; i++)
+            for (int y = y0[i]; y <= y1[i]; y++)
+                for (int x = x0[i]; x <= x1[i]; x++) {
+                    int k = y * cols + x;
+                    items[start[k] + fill[k]++] = i;
+                }
+
+        // проверяем пары внутри ячеек
+        for (int cy = 0; cy < rows; cy++) {
+            for (int cx = 0; cx < cols; cx++) {
+                int k = cy * cols + cx;
+                for (int a = start[k]; a < start[k + 1]; a++) {
+                    int i = items[a];
+                    for (int b = a + 1; b < start[k + 1]; b++) {
+                        int j = items[b];
+                        // пару проверяем только в одной ячейке: в углу пересечения их квадратов
+                        if (Math.max(x0[i], x0[j]) != cx || Math.max(y0[i], y0[j]) != cy)
+                            continue;
+                        solution.tested++;
+                        if (Intersections.isCrossed(circles, i, j))
+                            solution.offer(Intersections.chordLength(circles, i, j), i, j);
+                    }
+                }
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * Получить номер ячейки по координате
+     *
+     * @param v    координата
+     * @param min  начало сетки
+     * @param cell размер ячейки
+     * @param cnt  кол-во ячеек
+     * @return номер ячейки
+     */
+    private static int cellPos(double v, double min, double cell, int cnt) {
+        return Math.max(0, Math.min(cnt - 1, (int) ((v - min) / cell)));
+    }
+}
@@ -0,0 +1,313 @@
+package solvers;
+
+import app.CircleStore;
+import misc.CoordinateSystem2d;
+import misc.IntList;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Поддержка лучшей пары при изменении хранилища: добавленная окружность
+ * проверяется только с соседями по хеш-сетке, полный пересчёт нужен
+ * лишь при удалении окружности из лучшей пары. Размер ячейки равен среднему
+ * диаметру, как у {@link GridSolver}, и пересчитывается, когда кол-во окружностей
+ * удваивается или слишком большая доля окружностей перестаёт помещаться в сетку
+ */
+public class IncrementalSolver implements Solver {
+    /**
+     * Кол-во ячеек сетки по большей стороне СК задачи, пока окружностей нет
+     */
+    private static final int CELLS_PER_SIDE = 64;
+    /**
+     * Больших окружностей может быть не больше этой доли от всех,
+     * иначе сетка строится заново под новый средний диаметр
+     */
+    private static final int LARGE_SHARE = 8;
+    /**
+     * Кол-во больших окружностей, при котором сетку ещё не перестраивают
+     */
+    private static final int MIN_LARGE = 32;
+    /**
+     * Максимальное кол-во ячеек у окружности, большие окружности
+     * хранятся отдельным списком
+     */
+    private static final int MAX_CIRCLE_CELLS = 64;
+    /**
+     * Хранилище окружностей
+     */
+    private CircleStore circles;
+    /**
+     * СК задачи
+     */
+    private CoordinateSystem2d ownCS;
+    /**
+     * Кол-во больших окружностей, после которого сетку нужно перестроить
+     */
+    private int largeLimit = MIN_LARGE;
+    /**
+     * Кол-во окружностей при последнем построении сетки
+     */
+    private int builtSize;
+    /**
+     * Размер ячейки
+     */
+    private double cell;
+    /**
+     * Ячейки сетки
+     */
+    private final HashMap<Long, IntList> cells = new HashMap<>();
+    /**
+     * Окружности, занимающие слишком много ячеек
+     */
+    private final IntList large = new IntList();
+    /**
+     * Номер последнего запроса соседей для каждой окружности,
+     * чтобы не проверять пару дважды
+     */
+    private int[] stamps = new int[0];
+    /**
+     * Номер текущего запроса соседей
+     */
+    private int stamp = 0;
+    /**
+     * Лучшая пара
+     */
+    private Solution solution = new Solution();
+
+    /**
+     * Конструктор пустого решателя, хранилище задаётся при решении
+     */
+    public IncrementalSolver() {
+    }
+
+    /**
+     * Конструктор решателя по хранилищу
+     *
+     * @param circles хранилище окружностей
+     * @param ownCS   СК задачи
+     */
+    public IncrementalSolver(CircleStore circles, CoordinateSystem2d ownCS) {
+        reset(circles, ownCS);
+    }
+
+    /**
+     * Найти лучшую пару, построив сетку заново
+     *
+     * @param circles хранилище окружностей
+     * @param ownCS   СК задачи
+     * @return лучшая пара
+     */
+    @Override
+    public Solution solve(CircleStore circles, CoordinateSystem2d ownCS) {
+        reset(circles, ownCS);
+        return solution;
+    }
+
+    /**
+     * Получить текущую лучшую пару
+     *
+     * @return копия лучшей пары, дальнейшие изменения её не меняют
+     */
+    public Solution getSolution() {
+        return solution.copy();
+    }
+
+    /**
+     * Перенести решатель на другое хранилище с теми же окружностями,
+     * например со снимка, по которому сетка построена в фоне, на хранилище задачи
+     *
+     * @param circles хранилище окружностей
+     */
+    public void attach(CircleStore circles) {
+        if (circles.size() != this.circles.size())
+            throw new IllegalArgumentException("в хранилище другое кол-во окружностей");
+        this.circles = circles;
+    }
+
+    /**
+     * Обработать добавление окружности в конец хранилища
+     */
+    public void added() {
+        insert(circles.size() - 1, true);
+        // средний диаметр мог сильно измениться, либо сетка перестала
+        // подходить под размеры окружностей; перестройка при удвоении
+        // кол-ва окружностей в среднем стоит O(1) на добавление
+        if (circles.size() >= 2 * Math.max(builtSize, MIN_LARGE) ||
+                large.size > largeLimit && large.size > circles.size() / LARGE_SHARE)
+            regrid();
+    }
+
+    /**
+     * Обработать удаление окружности из хранилища
+     *
+     * @param index индекс удалённой окружности
+     */
+    public void removed(int index) {
+        if (index == solution.index1 || index == solution.index2) {
+            // лучшая пара разрушена - ищем заново
+            rebuild(true);
+            return;
+        }
+        // остальные пары не могли стать лучше, сдвигаем индексы
+        if (solution.index1 > index)
+            solution.index1--;
+        if (solution.index2 > index)
+            solution.index2--;
+        for (IntList list : cells.values())
+            list.remove(index);
+        large.remove(index);
+    }
+
+    /**
+     * Обработать очистку хранилища
+     */
+    public void cleared() {
+        cells.clear();
+        large.size = 0;
+        solution = new Solution();
+        // сетка прежней сцены не подходит новым окружностям
+        builtSize = 0;
+        largeLimit = MIN_LARGE;
+        updateCell();
+    }
+
+    /**
+     * Задать хранилище и построить сетку
+     *
+     * @param circles хранилище окружностей
+     * @param ownCS   СК задачи
+     */
+    private void reset(CircleStore circles, CoordinateSystem2d ownCS) {
+        this.circles = circles;
+        this.ownCS = ownCS;
+        rebuild(true);
+    }
+
+    /**
+     * Построить сетку по всему хранилищу
+     *
+     * @param test флаг, нужно ли искать лучшую пару
+     */
+    private void rebuild(boolean test) {
+        cleared();
+        updateCell();
+        for (int i = 0; i < circles.size(); i++)
+            insert(i, test);
+        largeLimit = Math.max(MIN_LARGE, 2 * large.size);
+        builtSize = circles.size();
+    }
+
+    /**
+     * Перестроить сетку под текущие радиусы, сохранив лучшую пару
+     */
+    private void regrid() {
+        Solution kept = solution;
+        rebuild(false);
+        solution = kept;
+    }
+
+    /**
+     * Выбрать размер ячейки: средний диаметр окружностей, а без них
+     * заданная доля СК задачи
+     */
+    private void updateCell() {
+        double radSum = 0;
+        for (int i = 0; i < circles.size(); i++)
+            radSum += circles.rad(i);
+        cell = circles.size() > 0 ? 2 * radSum / circles.size() : 0;
+        if (!(cell > 0) || Double.isInfinite(cell))
+            cell = Math.max(ownCS.getSize().x, ownCS.getSize().y) / CELLS_PER_SIDE;
+        if (!(cell > 0) || Double.isInfinite(cell))
+            cell = 1;
+    }
+
+    /**
+     * Номер ячейки по координате
+     *
+     * @param v координата
+     * @return номер ячейки
+     */
+    private long cellPos(double v) {
+        return (long) Math.floor(v / cell);
+    }
+
+    /**
+     * Ключ ячейки
+     *
+     * @param x номер ячейки по x
+     * @param y номер ячейки по y
+     * @return ключ
+     */
+    private static long key(long x, long y) {
+        return (x << 32) ^ (y & 0xffffffffL);
+    }
+
+    /**
+     * Добавить окружность в сетку
+     *
+     * @param i    индекс окружности
+     * @param test флаг, нужно ли проверить её с соседями
+     */
+    private void insert(int i, boolean test) {
+        double x = circles.x(i), y = circles.y(i), r = circles.rad(i);
+        long x0 = cellPos(x - r), x1 = cellPos(x + r);
+        long y0 = cellPos(y - r), y1 = cellPos(y + r);
+        boolean isLarge = (x1 - x0 + 1) * (y1 - y0 + 1) > MAX_CIRCLE_CELLS;
+
+        if (test) {
+            if (stamps.length < circles.size())
+                stamps = Arrays.copyOf(stamps, Math.max(circles.size(), stamps.length * 2));
+            stamp++;
+            stamps[i] = stamp;
+            // большие окружности - соседи всех
+            testAll(large, i);
+            if (isLarge) {
+                // большую окружность проверяем со всеми
+                for (int k = 0; k < i; k++)
+                    testPair(k, i);
+            } else {
+                for (long cy = y0; cy <= y1; cy++)
+                    for (long cx = x0; cx <= x1; cx++) {
+                        IntList list = cells.get(key(cx, cy));
+                        if (list != null)
+                            testAll(list, i);
+                    }
+            }
+        }
+
+        if (isLarge) {
+            large.add(i);
+        } else {
+            for (long cy = y0; cy <= y1; cy++)
+                for (long cx = x0; cx <= x1; cx++)
+                    cells.computeIfAbsent(key(cx, cy), k -> new IntList()).add(i);
+        }
+    }
+
+    /**
+     * Проверить окружность со всеми окружностями списка
+     *
+     * @param list список индексов
+     * @param i    индекс окружности
+     */
+    private void testAll(IntList list, int i) {
+        for (int a = 0; a < list.size; a++)
+            testPair(list.items[a], i);
+    }
+
+    /**
+     * Проверить пару окружностей, если она ещё не проверялась
+     *
+     * @param k индекс ранее добавленной окружности
+     * @param i индекс новой окружности
+     */
+    private void testPair(int k, int i) {
+        if (stamps[k] == stamp)
+            return;
+        stamps[k] = stamp;
+        solution.tested++;
+        if (Intersections.isCrossed(circles, k, i))
+            solution.offer(Intersections.chordLength(circles, k, i), k, i);
+    }
+}
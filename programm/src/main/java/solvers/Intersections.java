@@ -0,0 +1,111 @@
+package solvers;
+
+import app.Circle;
+import app.CircleStore;
+import misc.Vector2d;
+
+/**
+ * Геометрия пересечения окружностей.
+ * Проверка и длина отрезка считаются на примитивах без создания объектов,
+ * точки пересечения строятся только для найденной пары
+ */
+public class Intersections {
+    /**
+     * Пересекаются ли окружности
+     *
+     * @param x1 x-координата центра окружности №1
+     * @param y1 y-координата центра окружности №1
+     * @param r1 радиус окружности №1
+     * @param x2 x-координата центра окружности №2
+     * @param y2 y-координата центра окружности №2
+     * @param r2 радиус окружности №2
+     * @return флаг, пересекаются ли окружности
+     */
+    public static boolean isCrossed(double x1, double y1, double r1, double x2, double y2, double r2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        // сравниваем квадраты расстояний, чтобы не извлекать корень
+        double d2 = dx * dx + dy * dy;
+        double sum = r1 + r2;
+        double diff = r1 - r2;
+        return d2 < sum * sum && d2 > diff * diff;
+    }
+
+    /**
+     * Пересекаются ли окружности хранилища
+     *
+     * @param circles хранилище окружностей
+     * @param i       индекс окружности №1
+     * @param j       индекс окружности №2
+     * @return флаг, пересекаются ли окружности
+     */
+    public static boolean isCrossed(CircleStore circles, int i, int j) {
+        return isCrossed(circles.x(i), circles.y(i), circles.rad(i), circles.x(j), circles.y(j), circles.rad(j));
+    }
+
+    /**
+     * Длина отрезка между точками пересечения окружностей.
+     * Окружности должны пересекаться
+     *
+     * @param x1 x-координата центра окружности №1
+     * @param y1 y-координата центра окружности №1
+     * @param r1 радиус окружности №1
+     * @param x2 x-координата центра окружности №2
+     * @param y2 y-координата центра окружности №2
+     * @param r2 радиус окружности №2
+     * @return длина отрезка
+     */
+    public static double chordLength(double x1, double y1, double r1, double x2, double y2, double r2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double d2 = dx * dx + dy * dy;
+        // расстояние от первого центра до отрезка равно t / (2d),
+        // половина отрезка - катет с гипотенузой r1
+        double t = r1 * r1 - r2 * r2 + d2;
+        double h2 = r1 * r1 - t * t / (4 * d2);
+        return h2 > 0 ? 2 * Math.sqrt(h2) : 0;
+    }
+
+    /**
+     * Длина отрезка между точками пересечения окружностей хранилища.
+     * Окружности должны пересекаться
+     *
+     * @param circles хранилище окружностей
+     * @param i       индекс окружности №1
+     * @param j       индекс окружности №2
+     * @return длина отрезка
+     */
+    public static double chordLength(CircleStore circles, int i, int j) {
+        return chordLength(circles.x(i), circles.y(i), circles.rad(i), circles.x(j), circles.y(j), circles.rad(j));
+    }
+
+    /**
+     * Найти точки пересечения окружностей
+     *
+     * @param c1 окружность №1
+     * @param c2 окружность №2
+     * @return точки пересечения
+     */
+    public static Vector2d[] crossing(Circle c1, Circle c2) {
+        double dx = c2.center.x - c1.center.x;
+        double dy = c2.center.y - c1.center.y;
+        double d = Math.sqrt(dx * dx + dy * dy);
+        // расстояние от первого центра до середины отрезка
+        double l = (c1.rad * c1.rad - c2.rad * c2.rad + d * d) / (2 * d);
+        // половина длины отрезка
+        double h = Math.sqrt(Math.max(c1.rad * c1.rad - l * l, 0));
+        double mx = c1.center.x + dx * l / d;
+        double my = c1.center.y + dy * l / d;
+        return new Vector2d[]{
+                new Vector2d(mx - dy * h / d, my + dx * h / d),
+                new Vector2d(mx + dy * h / d, my - dx * h / d)
+        };
+    }
+
+    /**
+     * Запрещённый конструктор
+     */
+    private Intersections() {
+        throw new AssertionError("Вызов этого конструктора запрещён");
+    }
+}
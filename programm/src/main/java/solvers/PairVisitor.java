@@ -0,0 +1,15 @@
+package solvers;
+
+/**
+ * Обработчик пары-кандидата, найденной при генерации кандидатов
+ */
+@FunctionalInterface
+public interface PairVisitor {
+    /**
+     * Обработать пару
+     *
+     * @param i индекс первой окружности (i &lt; j)
+     * @param j индекс второй окружности
+     */
+    void visit(int i, int j);
+}
@@ -0,0 +1,118 @@
+package solvers;
+
+import app.CircleStore;
+import misc.CoordinateSystem2d;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Параллельный перебор всех пар: строки i треугольника пар i &lt; j
+ * делятся на блоки с равным кол-вом пар, лучшие пары блоков объединяются
+ * с тем же правилом выбора при равной длине, что и в последовательном переборе
+ */
+public class ParallelSolver implements Solver {
+    /**
+     * Кол-во пар, которое блок перебирает без дальнейшего деления
+     */
+    private static final long LEAF_PAIRS = 1 << 16;
+
+    /**
+     * Найти лучшую пару
+     *
+     * @param circles хранилище окружностей
+     * @param ownCS   СК задачи
+     * @return лучшая пара
+     */
+    @Override
+    public Solution solve(CircleStore circles, CoordinateSystem2d ownCS) {
+        return ForkJoinPool.commonPool().invoke(new RowsTask(circles, 0, circles.size()));
+    }
+
+    /**
+     * Перебор пар для строк [from, to)
+     */
+    private static class RowsTask extends RecursiveTask<Solution> {
+        /**
+         * Хранилище окружностей
+         */
+        private final CircleStore circles;
+        /**
+         * Первая строка
+         */
+        private final int from;
+        /**
+         * Строка после последней
+         */
+        private final int to;
+
+        /**
+         * Конструктор задачи перебора
+         *
+         * @param circles хранилище окружностей
+         * @param from    первая строка
+         * @param to      строка после последней
+         */
+        RowsTask(CircleStore circles, int from, int to) {
+            this.circles = circles;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Кол-во пар в строках [from, to)
+         *
+         * @param from первая строка
+         * @param to   строка после последней
+         * @return кол-во пар
+         */
+        private long pairs(int from, int to) {
+            int n = circles.size();
+            // сумма (n - 1 - i) по i из [from, to)
+            return (long) (to - from) * (2L * n - from - to - 1) / 2;
+        }
+
+        /**
+         * Перебор
+         *
+         * @return лучшая пара блока
+         */
+        @Override
+        protected Solution compute() {
+            long total = pairs(from, to);
+            if (total <= LEAF_PAIRS || to - from < 2)
+                return computeDirectly();
+            // ищем строку, делящую пары пополам
+            int lo = from + 1, hi = to - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (pairs(from, mid) * 2 < total)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            RowsTask left = new RowsTask(circles, from, lo);
+            RowsTask right = new RowsTask(circles, lo, to);
+            right.fork();
+            Solution solution = left.compute();
+            return solution.merge(right.join());
+        }
+
+        /**
+         * Последовательный перебор блока
+         *
+         * @return лучшая пара блока
+         */
+        private Solution computeDirectly() {
+            Solution solution = new Solution();
+            for (int i = from; i < to; ++i) {
+                for (int j = i + 1; j < circles.size(); ++j) {
+                    solution.tested++;
+                    if (Intersections.isCrossed(circles, i, j))
+                        solution.offer(Intersections.chordLength(circles, i, j), i, j);
+                }
+            }
+            return solution;
+        }
+    }
+}
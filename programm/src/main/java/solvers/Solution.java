@@ -0,0 +1,102 @@
+package solvers;
+
+/**
+ * Лучшая найденная пара окружностей
+ */
+public class Solution {
+    /**
+     * Индекс первой окружности пары
+     */
+    public int index1 = -1;
+    /**
+     * Индекс второй окружности пары
+     */
+    public int index2 = -1;
+    /**
+     * Длина отрезка между точками пересечения
+     */
+    public double len = 0;
+    /**
+     * Кол-во пар, дошедших до проверки пересечения
+     */
+    public long tested = 0;
+
+    /**
+     * Лучше ли пара текущей лучшей.
+     * При равной длине выигрывает пара с меньшими индексами,
+     * как при переборе всех пар по порядку
+     *
+     * @param len длина отрезка пары
+     * @param i   индекс первой окружности (i &lt; j)
+     * @param j   индекс второй окружности
+     * @return флаг, лучше ли пара
+     */
+    public boolean isBetter(double len, int i, int j) {
+        if (len > this.len)
+            return true;
+        return len == this.len && index1 != -1 && (i < index1 || (i == index1 && j < index2));
+    }
+
+    /**
+     * Предложить пару окружностей
+     *
+     * @param len длина отрезка пары
+     * @param i   индекс первой окружности (i &lt; j)
+     * @param j   индекс второй окружности
+     * @return флаг, стала ли пара лучшей
+     */
+    public boolean offer(double len, int i, int j) {
+        if (!isBetter(len, i, j))
+            return false;
+        this.len = len;
+        this.index1 = i;
+        this.index2 = j;
+        return true;
+    }
+
+    /**
+     * Копия решения
+     *
+     * @return новое решение с теми же полями
+     */
+    public Solution copy() {
+        Solution copy = new Solution();
+        copy.index1 = index1;
+        copy.index2 = index2;
+        copy.len = len;
+        copy.tested = tested;
+        return copy;
+    }
+
+    /**
+     * Объединить с решением другой части перебора
+     *
+     * @param other решение другой части
+     * @return текущее решение
+     */
+    public Solution merge(Solution other) {
+        if (other.isFound())
+            offer(other.len, other.index1, other.index2);
+        tested += other.tested;
+        return this;
+    }
+
+    /**
+     * Кол-во пар, отброшенных без проверки пересечения
+     *
+     * @param n кол-во окружностей
+     * @return кол-во отброшенных пар
+     */
+    public long getPruned(int n) {
+        return Math.max(0, (long) n * (n - 1) / 2 - tested);
+    }
+
+    /**
+     * Найдена ли пара
+     *
+     * @return флаг
+     */
+    public boolean isFound() {
+        return index1 != -1 && index2 != -1;
+    }
+}
@@ -0,0 +1,47 @@
+package solvers;
+
+/**
+ * Режим решения задачи
+ */
+public enum SolveMode {
+    /**
+     * Перебор всех пар
+     */
+    BRUTE_FORCE,
+    /**
+     * Равномерная сетка
+     */
+    GRID,
+    /**
+     * Заметающая прямая
+     */
+    SWEEP,
+    /**
+     * Метод ветвей и границ по длине отрезка
+     */
+    BRANCH_AND_BOUND,
+    /**
+     * Параллельный перебор всех пар
+     */
+    PARALLEL,
+    /**
+     * Поддержка лучшей пары при добавлении окружностей
+     */
+    INCREMENTAL;
+
+    /**
+     * Получить алгоритм решения для режима
+     *
+     * @return алгоритм решения
+     */
+    public Solver getSolver() {
+        return switch (this) {
+            case BRUTE_FORCE -> new BruteForceSolver();
+            case GRID -> new GridSolver();
+            case SWEEP -> new SweepSolver();
+            case BRANCH_AND_BOUND -> new BranchAndBoundSolver();
+            case PARALLEL -> new ParallelSolver();
+            case INCREMENTAL -> new IncrementalSolver();
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package solvers;
+
+import app.CircleStore;
+import misc.CoordinateSystem2d;
+
+/**
+ * Алгоритм поиска пары окружностей с самым длинным отрезком пересечения
+ */
+public interface Solver {
+    /**
+     * Найти лучшую пару
+     *
+     * @param circles хранилище окружностей
+     * @param ownCS   СК задачи
+     * @return лучшая пара
+     */
+    Solution solve(CircleStore circles, CoordinateSystem2d ownCS);
+}
@@ -0,0 +1,47 @@
+package solvers;
+
+/**
+ * Сортировка индексов по вещественным ключам без упаковки в объекты
+ */
+class Sorting {
+    /**
+     * Получить индексы 0..n-1, упорядоченные по возрастанию ключей.
+     * Сортировка устойчивая: при равных ключах меньший индекс идёт раньше
+     *
+     * @param keys ключи
+     * @return упорядоченные индексы
+     */
+    static int[] sortedIndices(double[] keys) {
+        int n = keys.length;
+        int[] idx = new int[n];
+        for (int i = 0; i < n; i++)
+            idx[i] = i;
+        int[] tmp = new int[n];
+        // восходящая сортировка слиянием
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, n);
+                // если половины уже упорядочены, сливать не нужно
+                if (Double.compare(keys[idx[mid - 1]], keys[idx[mid]]) <= 0)
+                    continue;
+                System.arraycopy(idx, lo, tmp, lo, hi - lo);
+                int a = lo, b = mid, k = lo;
+                while (a < mid && b < hi)
+                    idx[k++] = Double.compare(keys[tmp[b]], keys[tmp[a]]) < 0 ? tmp[b++] : tmp[a++];
+                while (a < mid)
+                    idx[k++] = tmp[a++];
+                while (b < hi)
+                    idx[k++] = tmp[b++];
+            }
+        }
+        return idx;
+    }
+
+    /**
+     * Запрещённый конструктор
+     */
+    private Sorting() {
+        throw new AssertionError("Вызов этого конструктора запрещён");
+    }
+}
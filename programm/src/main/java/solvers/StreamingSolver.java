@@ -0,0 +1,558 @@
+package solvers;
+
+import app.Circle;
+import app.HeapCircleStore;
+import files.CircleReader;
+import misc.Vector2d;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Решение задачи по файлу без загрузки всех окружностей в память.
+ * Ось x делится на полосы с примерно равным кол-вом левых границ отрезков
+ * [x - r, x + r], окружности раскладываются во временные файлы всех полос,
+ * которые задевают. Полоса, в которой больше окружностей, чем позволяет бюджет
+ * (широкие окружности попадают в каждую задетую полосу, а одна корзина гистограммы
+ * может быть больше бюджета), делится дальше по другой оси. Если деление уже
+ * не уменьшает область ни по одной оси, пары перебираются блоками по половине бюджета.
+ * Пара проверяется только в области, где лежит угол пересечения
+ * их ограничивающих квадратов, поэтому каждая пара проверяется один раз
+ */
+public class StreamingSolver {
+    /**
+     * Кол-во корзин гистограммы левых границ
+     */
+    private static final int HISTOGRAM_SIZE = 4096;
+    /**
+     * Размер записи полосы: индекс и три координаты
+     */
+    private static final int RECORD_BYTES = Integer.BYTES + 3 * Double.BYTES;
+    /**
+     * Кол-во окружностей, которое одновременно держится в памяти
+     */
+    private final int budget;
+    /**
+     * Обработчик сообщений о ходе решения
+     */
+    private final Consumer<String> progress;
+    /**
+     * Окружности в ответе
+     */
+    private final List<Circle> crossed = new ArrayList<>();
+    /**
+     * Пиковый объём занятой кучи по выборкам
+     */
+    private long peakMemory;
+    /**
+     * Наибольшее кол-во окружностей, одновременно загруженных в память
+     */
+    private int peakStrip;
+    /**
+     * Папка временных файлов
+     */
+    private Path dir;
+    /**
+     * Номер следующего временного файла
+     */
+    private int nextFile;
+
+    /**
+     * Прямоугольная область, в которой проверяются пары, границы могут быть бесконечными
+     *
+     * @param min нижние границы по осям x и y, входят в область
+     * @param max верхние границы по осям x и y, не входят в область
+     */
+    private record Region(double[] min, double[] max) {
+        /**
+         * Проверить, лежит ли точка в области
+         *
+         * @param x x-координата
+         * @param y y-координата
+         * @return флаг
+         */
+        boolean contains(double x, double y) {
+            return min[0] <= x && x < max[0] && min[1] <= y && y < max[1];
+        }
+
+        /**
+         * Часть области между границами по оси
+         *
+         * @param axis ось: 0 - x, 1 - y
+         * @param from нижняя граница
+         * @param to   верхняя граница
+         * @return часть области
+         */
+        Region part(int axis, double from, double to) {
+            double[] min = this.min.clone(), max = this.max.clone();
+            min[axis] = from;
+            max[axis] = to;
+            return new Region(min, max);
+        }
+    }
+
+    /**
+     * Конструктор решателя
+     *
+     * @param budget   кол-во окружностей, которое можно держать в памяти
+     * @param progress обработчик сообщений о ходе решения
+     */
+    public StreamingSolver(int budget, Consumer<String> progress) {
+        this.budget = Math.max(budget, 2);
+        this.progress = progress;
+    }
+
+    /**
+     * Решить задачу по файлу
+     *
+     * @param file файл задачи
+     * @return лучшая пара, индексы - порядковые номера окружностей в файле
+     * @throws IOException ошибка чтения или записи временных файлов
+     */
+    public Solution solve(File file) throws IOException {
+        crossed.clear();
+        peakMemory = 0;
+        peakStrip = 0;
+        nextFile = 0;
+        sampleMemory();
+
+        // проход 1: кол-во окружностей и диапазон левых границ
+        int n = 0;
+        double minLeft = Double.POSITIVE_INFINITY, maxLeft = Double.NEGATIVE_INFINITY;
+        try (CircleReader reader = CircleReader.open(file)) {
+            while (reader.next()) {
+                double left = reader.x() - reader.rad();
+                minLeft = Math.min(minLeft, left);
+                maxLeft = Math.max(maxLeft, left);
+                n++;
+            }
+        }
+        progress.accept("окружностей в файле: " + n);
+
+        // проход 2: гистограмма левых границ и границы полос
+        long[] histogram = new long[HISTOGRAM_SIZE];
+        double bucket = (maxLeft - minLeft) / HISTOGRAM_SIZE;
+        if (n > budget && bucket > 0) {
+            try (CircleReader reader = CircleReader.open(file)) {
+                while (reader.next())
+                    histogram[bucketPos(reader.x() - reader.rad(), minLeft, bucket)]++;
+            }
+        }
+        double[] cuts = cuts(histogram, minLeft, bucket);
+        int strips = cuts.length + 1;
+        progress.accept("полос: " + strips);
+
+        dir = Files.createTempDirectory("circles");
+        try {
+            // проход 3: раскладываем окружности по полосам
+            File[] stripFiles = new File[strips];
+            DataOutputStream[] outs = new DataOutputStream[strips];
+            try {
+                for (int s = 0; s < strips; s++)
+                    outs[s] = create(stripFiles[s] = newFile());
+                try (CircleReader reader = CircleReader.open(file)) {
+                    for (int index = 0; reader.next(); index++) {
+                        double x = reader.x(), y = reader.y(), r = reader.rad();
+                        for (int s = stripPos(cuts, x - r); s <= stripPos(cuts, x + r); s++)
+                            write(outs[s], index, x, y, r);
+                    }
+                }
+            } finally {
+                for (DataOutputStream out : outs)
+                    if (out != null)
+                        out.close();
+            }
+
+            // решаем полосы по одной, дальше они делятся по y
+            Solution solution = new Solution();
+            Region all = new Region(
+                    new double[]{Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY},
+                    new double[]{Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY}
+            );
+            for (int s = 0; s < strips; s++) {
+                Region strip = all.part(0,
+                        s == 0 ? Double.NEGATIVE_INFINITY : cuts[s - 1],
+                        s == strips - 1 ? Double.POSITIVE_INFINITY : cuts[s]);
+                solveRegion(stripFiles[s], strip, 1, 0, solution);
+                sampleMemory();
+                progress.accept("полоса " + (s + 1) + "/" + strips + " решена");
+            }
+            progress.accept("пиковая память по выборкам Runtime (не гарантия): " +
+                    peakMemory / (1024 * 1024) + " МБ, окружностей в памяти до " + peakStrip);
+            return solution;
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator)
+                    Files.deleteIfExists(p);
+            }
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    /**
+     * Решить область: в памяти, если она помещается в бюджет, иначе разделив её
+     * по оси или, если деление больше не помогает, перебором блоками
+     *
+     * @param file     файл записей области, удаляется после решения
+     * @param region   область
+     * @param axis     ось деления: 0 - x, 1 - y
+     * @param failed   кол-во подряд идущих делений, не уменьшивших область
+     * @param solution лучшая пара
+     * @throws IOException ошибка чтения или записи временных файлов
+     */
+    private void solveRegion(File file, Region region, int axis, int failed, Solution solution) throws IOException {
+        int cnt = (int) (file.length() / RECORD_BYTES);
+        if (cnt <= budget)
+            solveInMemory(file, cnt, region, solution);
+        else if (failed >= 2)
+            solveBlocked(file, cnt, region, solution);
+        else
+            split(file, cnt, region, axis, failed, solution);
+        Files.deleteIfExists(file.toPath());
+    }
+
+    /**
+     * Разделить область по оси на части с примерно равным кол-вом нижних границ
+     * и решить части
+     *
+     * @param file     файл записей области
+     * @param cnt      кол-во записей
+     * @param region   область
+     * @param axis     ось деления: 0 - x, 1 - y
+     * @param failed   кол-во подряд идущих делений, не уменьшивших область
+     * @param solution лучшая пара
+     * @throws IOException ошибка чтения или записи временных файлов
+     */
+    private void split(File file, int cnt, Region region, int axis, int failed, Solution solution) throws IOException {
+        // нижние границы отрезков по оси, обрезанные областью
+        double from = region.min[axis];
+        double minLow = Double.POSITIVE_INFINITY, maxLow = Double.NEGATIVE_INFINITY;
+        try (DataInputStream in = open(file)) {
+            for (int k = 0; k < cnt; k++) {
+                in.readInt();
+                double low = Math.max(from, lower(in, axis));
+                minLow = Math.min(minLow, low);
+                maxLow = Math.max(maxLow, low);
+            }
+        }
+        double bucket = (maxLow - minLow) / HISTOGRAM_SIZE;
+        long[] histogram = new long[HISTOGRAM_SIZE];
+        if (bucket > 0) {
+            try (DataInputStream in = open(file)) {
+                for (int k = 0; k < cnt; k++) {
+                    in.readInt();
+                    histogram[bucketPos(Math.max(from, lower(in, axis)), minLow, bucket)]++;
+                }
+            }
+        }
+        double[] cuts = cuts(histogram, minLow, bucket);
+        if (cuts.length == 0) {
+            // по этой оси не разделить, пробуем другую
+            solveRegion(file, region, 1 - axis, failed + 1, solution);
+            return;
+        }
+
+        int parts = cuts.length + 1;
+        File[] partFiles = new File[parts];
+        int[] partCnt = new int[parts];
+        DataOutputStream[] outs = new DataOutputStream[parts];
+        try {
+            for (int p = 0; p < parts; p++)
+                outs[p] = create(partFiles[p] = newFile());
+            try (DataInputStream in = open(file)) {
+                for (int k = 0; k < cnt; k++) {
+                    int index = in.readInt();
+                    double x = in.readDouble(), y = in.readDouble(), r = in.readDouble();
+                    double c = axis == 0 ? x : y;
+                    for (int p = stripPos(cuts, Math.max(from, c - r)); p <= stripPos(cuts, c + r); p++) {
+                        write(outs[p], index, x, y, r);
+                        partCnt[p]++;
+                    }
+                }
+            }
+        } finally {
+            for (DataOutputStream out : outs)
+                if (out != null)
+                    out.close();
+        }
+        for (int p = 0; p < parts; p++) {
+            Region part = region.part(axis,
+                    p == 0 ? region.min[axis] : cuts[p - 1],
+                    p == parts - 1 ? region.max[axis] : cuts[p]);
+            // часть, в которую попали все записи, деление не уменьшило
+            solveRegion(partFiles[p], part, 1 - axis, partCnt[p] == cnt ? failed + 1 : 0, solution);
+        }
+    }
+
+    /**
+     * Решить область в памяти заметающей прямой
+     *
+     * @param file     файл записей области
+     * @param cnt      кол-во записей
+     * @param region   область
+     * @param solution лучшая пара
+     * @throws IOException ошибка чтения
+     */
+    private void solveInMemory(File file, int cnt, Region region, Solution solution) throws IOException {
+        peakStrip = Math.max(peakStrip, cnt);
+        HeapCircleStore circles = new HeapCircleStore(cnt);
+        int[] indices = new int[cnt];
+        try (DataInputStream in = open(file)) {
+            read(in, cnt, circles, indices);
+        }
+        sampleMemory();
+        // записи идут в порядке файла, поэтому a < b означает i < j
+        SweepSolver.forEachCandidate(circles, (a, b) -> testPair(circles, a, indices[a], circles, b, indices[b], region, solution));
+    }
+
+    /**
+     * Перебрать пары области блоками: блок в половину бюджета сравнивается
+     * с самим собой и со всеми следующими блоками, которые читаются по очереди
+     *
+     * @param file     файл записей области
+     * @param cnt      кол-во записей
+     * @param region   область
+     * @param solution лучшая пара
+     * @throws IOException ошибка чтения
+     */
+    private void solveBlocked(File file, int cnt, Region region, Solution solution) throws IOException {
+        int block = budget / 2;
+        peakStrip = Math.max(peakStrip, 2 * block);
+        HeapCircleStore first = new HeapCircleStore(block), second = new HeapCircleStore(block);
+        int[] firstIndices = new int[block], secondIndices = new int[block];
+        for (int start = 0; start < cnt; start += block) {
+            try (DataInputStream in = open(file)) {
+                in.skipNBytes((long) start * RECORD_BYTES);
+                int firstCnt = Math.min(block, cnt - start);
+                first.clear();
+                read(in, firstCnt, first, firstIndices);
+                for (int a = 0; a < firstCnt; a++)
+                    for (int b = a + 1; b < firstCnt; b++)
+                        testPair(first, a, firstIndices[a], first, b, firstIndices[b], region, solution);
+                for (int rest = start + firstCnt; rest < cnt; rest += block) {
+                    int secondCnt = Math.min(block, cnt - rest);
+                    second.clear();
+                    read(in, secondCnt, second, secondIndices);
+                    sampleMemory();
+                    for (int a = 0; a < firstCnt; a++)
+                        for (int b = 0; b < secondCnt; b++)
+                            testPair(first, a, firstIndices[a], second, b, secondIndices[b], region, solution);
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверить пару, если её угол пересечения ограничивающих квадратов лежит в области
+     *
+     * @param first    хранилище первой окружности
+     * @param a        индекс первой окружности в хранилище
+     * @param i        номер первой окружности в файле
+     * @param second   хранилище второй окружности
+     * @param b        индекс второй окружности в хранилище
+     * @param j        номер второй окружности в файле, больший i
+     * @param region   область
+     * @param solution лучшая пара
+     */
+    private void testPair(
+            HeapCircleStore first, int a, int i, HeapCircleStore second, int b, int j,
+            Region region, Solution solution
+    ) {
+        double x1 = first.x(a), y1 = first.y(a), r1 = first.rad(a);
+        double x2 = second.x(b), y2 = second.y(b), r2 = second.rad(b);
+        if (!region.contains(Math.max(x1 - r1, x2 - r2), Math.max(y1 - r1, y2 - r2)))
+            return;
+        solution.tested++;
+        if (Intersections.isCrossed(x1, y1, r1, x2, y2, r2)
+                && solution.offer(Intersections.chordLength(x1, y1, r1, x2, y2, r2), i, j)) {
+            crossed.clear();
+            crossed.add(first.get(a));
+            crossed.add(second.get(b));
+        }
+    }
+
+    /**
+     * Прочитать нижнюю границу окружности по оси, после номера записи
+     *
+     * @param in   поток записей
+     * @param axis ось: 0 - x, 1 - y
+     * @return нижняя граница
+     * @throws IOException ошибка чтения
+     */
+    private static double lower(DataInputStream in, int axis) throws IOException {
+        double x = in.readDouble(), y = in.readDouble(), r = in.readDouble();
+        return (axis == 0 ? x : y) - r;
+    }
+
+    /**
+     * Прочитать записи в хранилище
+     *
+     * @param in      поток записей
+     * @param cnt     кол-во записей
+     * @param circles хранилище
+     * @param indices номера окружностей в файле
+     * @throws IOException ошибка чтения
+     */
+    private static void read(DataInputStream in, int cnt, HeapCircleStore circles, int[] indices) throws IOException {
+        for (int k = 0; k < cnt; k++) {
+            indices[k] = in.readInt();
+            circles.add(in.readDouble(), in.readDouble(), in.readDouble());
+        }
+    }
+
+    /**
+     * Записать запись
+     *
+     * @param out   поток записей
+     * @param index номер окружности в файле
+     * @param x     x-координата центра
+     * @param y     y-координата центра
+     * @param r     радиус
+     * @throws IOException ошибка записи
+     */
+    private static void write(DataOutputStream out, int index, double x, double y, double r) throws IOException {
+        out.writeInt(index);
+        out.writeDouble(x);
+        out.writeDouble(y);
+        out.writeDouble(r);
+    }
+
+    /**
+     * Новый временный файл
+     *
+     * @return файл
+     */
+    private File newFile() {
+        return dir.resolve(nextFile++ + ".bin").toFile();
+    }
+
+    /**
+     * Открыть файл записей на чтение
+     *
+     * @param file файл
+     * @return поток
+     * @throws IOException ошибка открытия
+     */
+    private static DataInputStream open(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+    }
+
+    /**
+     * Создать файл записей
+     *
+     * @param file файл
+     * @return поток
+     * @throws IOException ошибка создания
+     */
+    private static DataOutputStream create(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    }
+
+    /**
+     * Границы полос по гистограмме: в каждой полосе не больше заданного
+     * кол-ва левых границ, если это позволяет ширина корзины
+     *
+     * @param histogram гистограмма
+     * @param min       начало гистограммы
+     * @param bucket    ширина корзины
+     * @return границы полос по возрастанию
+     */
+    private double[] cuts(long[] histogram, double min, double bucket) {
+        double[] cuts = new double[HISTOGRAM_SIZE];
+        int cnt = 0;
+        long acc = 0;
+        for (int k = 0; k < HISTOGRAM_SIZE - 1; k++) {
+            acc += histogram[k];
+            if (acc + histogram[k + 1] > budget) {
+                cuts[cnt++] = min + (k + 1) * bucket;
+                acc = 0;
+            }
+        }
+        return Arrays.copyOf(cuts, cnt);
+    }
+
+    /**
+     * Номер корзины гистограммы
+     *
+     * @param v      значение
+     * @param min    начало гистограммы
+     * @param bucket ширина корзины
+     * @return номер корзины
+     */
+    private static int bucketPos(double v, double min, double bucket) {
+        return Math.max(0, Math.min(HISTOGRAM_SIZE - 1, (int) ((v - min) / bucket)));
+    }
+
+    /**
+     * Номер полосы по координате
+     *
+     * @param cuts границы полос
+     * @param v    координата
+     * @return номер полосы
+     */
+    private static int stripPos(double[] cuts, double v) {
+        int lo = 0, hi = cuts.length;
+        // кол-во границ, не больших v
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cuts[mid] <= v)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Запомнить текущий объём занятой кучи: это выборка Runtime в отдельные
+     * моменты, а не гарантия, что больше память не занималась
+     */
+    private void sampleMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        peakMemory = Math.max(peakMemory, runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    /**
+     * Получить окружности в ответе
+     *
+     * @return окружности в ответе
+     */
+    public List<Circle> getCrossed() {
+        return crossed;
+    }
+
+    /**
+     * Получить точки пересечения окружностей в ответе
+     *
+     * @return точки пересечения
+     */
+    public Vector2d[] getPointing() {
+        if (crossed.isEmpty())
+            return new Vector2d[2];
+        return Intersections.crossing(crossed.get(0), crossed.get(1));
+    }
+
+    /**
+     * Пиковый объём занятой кучи по выборкам Runtime, не гарантия
+     *
+     * @return объём в байтах
+     */
+    public long getPeakMemory() {
+        return peakMemory;
+    }
+
+    /**
+     * Наибольшее кол-во окружностей, одновременно загруженных в память,
+     * оно не превышает бюджет
+     *
+     * @return кол-во окружностей
+     */
+    public int getPeakStrip() {
+        return peakStrip;
+    }
+}
@@ -0,0 +1,63 @@
+package solvers;
+
+import app.CircleStore;
+import misc.CoordinateSystem2d;
+
+/**
+ * Поиск пар заметающей прямой: окружности упорядочиваются по левой границе
+ * отрезка [x - r, x + r], проверяются только пары с пересекающимися отрезками
+ */
+public class SweepSolver implements Solver {
+    /**
+     * Найти лучшую пару
+     *
+     * @param circles хранилище окружностей
+     * @param ownCS   СК задачи
+     * @return лучшая пара
+     */
+    @Override
+    public Solution solve(CircleStore circles, CoordinateSystem2d ownCS) {
+        Solution solution = new Solution();
+        forEachCandidate(circles, (i, j) -> {
+            solution.tested++;
+            if (Intersections.isCrossed(circles, i, j))
+                solution.offer(Intersections.chordLength(circles, i, j), i, j);
+        });
+        return solution;
+    }
+
+    /**
+     * Перебрать все пары с пересекающимися отрезками [x - r, x + r]
+     *
+     * @param circles хранилище окружностей
+     * @param visitor обработчик пары
+     */
+    public static void forEachCandidate(CircleStore circles, PairVisitor visitor) {
+        int n = circles.size();
+        double[] left = new double[n];
+        double[] right = new double[n];
+        for (int i = 0; i < n; i++) {
+            left[i] = circles.x(i) - circles.rad(i);
+            right[i] = circles.x(i) + circles.rad(i);
+        }
+        int[] order = Sorting.sortedIndices(left);
+
+        // активные окружности: те, чей отрезок ещё не закончился
+        int[] active = new int[n];
+        int activeCnt = 0;
+        for (int k = 0; k < n; k++) {
+            int cur = order[k];
+            int kept = 0;
+            for (int a = 0; a < activeCnt; a++) {
+                int other = active[a];
+                // отрезок закончился левее начала текущего - убираем из активных
+                if (right[other] < left[cur])
+                    continue;
+                active[kept++] = other;
+                visitor.visit(Math.min(cur, other), Math.max(cur, other));
+            }
+            activeCnt = kept;
+            active[activeCnt++] = cur;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package solvers;
+
+import app.CircleStore;
+
+/**
+ * K самых длинных отрезков пересечения. Пары хранятся в куче
+ * ограниченного размера, в корне которой худшая из отобранных пар,
+ * поэтому каждая новая пара сравнивается только с ней
+ */
+public class TopChords {
+    /**
+     * Относительный запас границы на погрешность вычисления длины отрезка
+     */
+    private static final double BOUND_EPS = 1e-9;
+    /**
+     * Максимальное кол-во пар
+     */
+    private final int capacity;
+    /**
+     * Длины отрезков
+     */
+    private final double[] lens;
+    /**
+     * Индексы первых окружностей
+     */
+    private final int[] indices1;
+    /**
+     * Индексы вторых окружностей
+     */
+    private final int[] indices2;
+    /**
+     * Кол-во отобранных пар
+     */
+    private int size;
+    /**
+     * Кол-во пар, дошедших до проверки пересечения
+     */
+    public long tested = 0;
+
+    /**
+     * Конструктор пустого набора
+     *
+     * @param capacity максимальное кол-во пар
+     */
+    public TopChords(int capacity) {
+        this.capacity = Math.max(capacity, 0);
+        lens = new double[this.capacity];
+        indices1 = new int[this.capacity];
+        indices2 = new int[this.capacity];
+    }
+
+    /**
+     * Найти K самых длинных отрезков пересечения.
+     * Кандидаты берутся из заметающей прямой, пары, у которых
+     * 2 * min(r1, r2) не больше худшей отобранной, отбрасываются
+     *
+     * @param circles хранилище окружностей
+     * @param k       кол-во отрезков
+     * @return отрезки, упорядоченные от самого длинного
+     */
+    public static TopChords find(CircleStore circles, int k) {
+        TopChords top = new TopChords(k);
+        if (k <= 0)
+            return top;
+        SweepSolver.forEachCandidate(circles, (i, j) -> {
+            if (top.isFull() && 2 * Math.min(circles.rad(i), circles.rad(j)) * (1 + BOUND_EPS) < top.lens[0])
+                return;
+            top.tested++;
+            if (Intersections.isCrossed(circles, i, j))
+                top.offer(Intersections.chordLength(circles, i, j), i, j);
+        });
+        top.sort();
+        return top;
+    }
+
+    /**
+     * Заполнен ли набор
+     *
+     * @return флаг
+     */
+    private boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * Хуже ли пара a пары b: короче, а при равной длине - с большими индексами
+     *
+     * @param a индекс пары a в куче
+     * @param b индекс пары b в куче
+     * @return флаг
+     */
+    private boolean isWorse(int a, int b) {
+        if (lens[a] != lens[b])
+            return lens[a] < lens[b];
+        if (indices1[a] != indices1[b])
+            return indices1[a] > indices1[b];
+        return indices2[a] > indices2[b];
+    }
+
+    /**
+     * Предложить пару окружностей
+     *
+     * @param len длина отрезка пары
+     * @param i   индекс первой окружности (i &lt; j)
+     * @param j   индекс второй окружности
+     */
+    private void offer(double len, int i, int j) {
+        if (!(len > 0) || capacity == 0)
+            return;
+        if (size < capacity) {
+            set(size, len, i, j);
+            siftUp(size++);
+            return;
+        }
+        // пара должна быть лучше худшей из отобранных
+        if (len < lens[0] || (len == lens[0] && (i > indices1[0] || (i == indices1[0] && j > indices2[0]))))
+            return;
+        set(0, len, i, j);
+        siftDown(0, size);
+    }
+
+    /**
+     * Записать пару в кучу
+     *
+     * @param k   позиция в куче
+     * @param len длина отрезка
+     * @param i   индекс первой окружности
+     * @param j   индекс второй окружности
+     */
+    private void set(int k, double len, int i, int j) {
+        lens[k] = len;
+        indices1[k] = i;
+        indices2[k] = j;
+    }
+
+    /**
+     * Поменять местами две пары кучи
+     *
+     * @param a позиция первой пары
+     * @param b позиция второй пары
+     */
+    private void swap(int a, int b) {
+        double len = lens[a];
+        int i = indices1[a], j = indices2[a];
+        set(a, lens[b], indices1[b], indices2[b]);
+        set(b, len, i, j);
+    }
+
+    /**
+     * Поднять пару к корню, пока она хуже родителя
+     *
+     * @param k позиция пары
+     */
+    private void siftUp(int k) {
+        while (k > 0) {
+            int parent = (k - 1) / 2;
+            if (!isWorse(k, parent))
+                break;
+            swap(k, parent);
+            k = parent;
+        }
+    }
+
+    /**
+     * Опустить пару от корня, пока среди потомков есть хуже неё
+     *
+     * @param k    позиция пары
+     * @param size размер кучи
+     */
+    private void siftDown(int k, int size) {
+        while (2 * k + 1 < size) {
+            int child = 2 * k + 1;
+            if (child + 1 < size && isWorse(child + 1, child))
+                child++;
+            if (!isWorse(child, k))
+                break;
+            swap(k, child);
+            k = child;
+        }
+    }
+
+    /**
+     * Упорядочить пары от лучшей к худшей (пирамидальная сортировка)
+     */
+    private void sort() {
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    /**
+     * Кол-во найденных отрезков
+     *
+     * @return кол-во отрезков
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Длина отрезка
+     *
+     * @param k номер отрезка
+     * @return длина
+     */
+    public double len(int k) {
+        return lens[k];
+    }
+
+    /**
+     * Индекс первой окружности пары
+     *
+     * @param k номер отрезка
+     * @return индекс окружности
+     */
+    public int index1(int k) {
+        return indices1[k];
+    }
+
+    /**
+     * Индекс второй окружности пары
+     *
+     * @param k номер отрезка
+     * @return индекс окружности
+     */
+    public int index2(int k) {
+        return indices2[k];
+    }
+}
@@ -1,12 +1,54 @@
 import app.Circle;
+import app.CirclePainter;
+import app.CircleStore;
+import app.HeadlessRenderer;
+import app.HeapCircleStore;
+import app.MappedCircleStore;
+import app.OffHeapCircleStore;
+import app.Scene;
 import app.Task;
+import app.UnitCircles;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import files.BinaryScene;
+import files.CircleReader;
+import files.Codec;
+import files.JsonScene;
+import files.Progress;
+import files.SceneFiles;
 import misc.CoordinateSystem2d;
+import misc.RingBuffer;
 import misc.Vector2d;
 import org.junit.Test;
+import panels.PanelLog;
+import solvers.BruteForceSolver;
+import solvers.IncrementalSolver;
+import solvers.Intersections;
+import solvers.SolveMode;
+import solvers.Solution;
+import solvers.StreamingSolver;
+import solvers.TopChords;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 /**
  * Класс тестирования
@@ -35,6 +77,46 @@ public class UnitTest {
     }
 
 
+    /**
+     * Тест совпадения режима решения с перебором всех пар
+     *
+     * @param circles список окружностей
+     * @param mode    проверяемый режим
+     */
+    private static void testSameAsBruteForce(ArrayList<Circle> circles, SolveMode mode) {
+        Task expected = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        expected.setSolveMode(SolveMode.BRUTE_FORCE);
+        expected.solve();
+        Task actual = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        actual.setSolveMode(mode);
+        actual.solve();
+
+        assert expected.getCrossed().size() == actual.getCrossed().size();
+        for (int i = 0; i < expected.getCrossed().size(); i++)
+            assert expected.getCrossed().get(i).equals(actual.getCrossed().get(i));
+        assert expected.getPointing()[0] == null || expected.getPointing()[0].equals(actual.getPointing()[0]);
+        assert expected.getPointing()[1] == null || expected.getPointing()[1].equals(actual.getPointing()[1]);
+    }
+
+    /**
+     * Получить случайные окружности
+     *
+     * @param cnt    кол-во окружностей
+     * @param maxRad максимальный радиус
+     * @param seed   зерно генератора
+     * @return список окружностей
+     */
+    private static ArrayList<Circle> randomCircles(int cnt, double maxRad, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Circle> circles = new ArrayList<>();
+        for (int i = 0; i < cnt; i++)
+            circles.add(new Circle(
+                    new Vector2d(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10),
+                    random.nextDouble() * maxRad + 0.01
+            ));
+        return circles;
+    }
+
     /**
      * Первый тест
      */
@@ -84,4 +166,842 @@ public class UnitTest {
 
         test(circles, crossed);
     }
+
+    /**
+     * Четвёртый тест: центры на одной горизонтали
+     */
+    @Test
+    public void test4() {
+        ArrayList<Circle> circles = new ArrayList<>();
+        Circle[] crossed = new Circle[2];
+
+        circles.add(new Circle(new Vector2d(0, 5), 1));
+        circles.add(new Circle(new Vector2d(0, 0), 5));
+        circles.add(new Circle(new Vector2d(0, 6), 1));
+        circles.add(new Circle(new Vector2d(4, 0), 5));
+
+        crossed[0] = (new Circle(new Vector2d(0, 0), 5));
+        crossed[1] = (new Circle(new Vector2d(4, 0), 5));
+
+        test(circles, crossed);
+    }
+
+    /**
+     * Сетка даёт тот же ответ, что и перебор
+     */
+    @Test
+    public void testGrid() {
+        for (int seed = 0; seed < 20; seed++)
+            testSameAsBruteForce(randomCircles(300, seed % 2 == 0 ? 0.5 : 5, seed), SolveMode.GRID);
+    }
+
+    /**
+     * Заметающая прямая даёт тот же ответ, что и перебор
+     */
+    @Test
+    public void testSweep() {
+        for (int seed = 0; seed < 20; seed++)
+            testSameAsBruteForce(randomCircles(300, seed % 2 == 0 ? 0.5 : 5, seed), SolveMode.SWEEP);
+    }
+
+    /**
+     * Метод ветвей и границ даёт тот же ответ, что и перебор
+     */
+    @Test
+    public void testBranchAndBound() {
+        for (int seed = 0; seed < 20; seed++)
+            testSameAsBruteForce(randomCircles(300, seed % 2 == 0 ? 0.5 : 5, seed), SolveMode.BRANCH_AND_BOUND);
+    }
+
+    /**
+     * Параллельный перебор даёт тот же ответ, что и последовательный,
+     * в том числе при равных длинах отрезков
+     */
+    @Test
+    public void testParallel() {
+        for (int seed = 0; seed < 5; seed++) {
+            ArrayList<Circle> circles = randomCircles(1500, 0.5, seed);
+            // копии окружностей дают пары с равными отрезками
+            for (int i = 0; i < 500; i++)
+                circles.add(new Circle(circles.get(i).center, circles.get(i).rad));
+            testSameAsBruteForce(circles, SolveMode.PARALLEL);
+        }
+    }
+
+    /**
+     * Хранилище вне кучи даёт тот же ответ, что и хранилище в куче
+     */
+    @Test
+    public void testOffHeapStore() {
+        ArrayList<Circle> circles = randomCircles(300, 5, 1);
+        Task expected = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        expected.solve();
+        System.setProperty(CircleStore.STORE_PROPERTY, "offheap");
+        Task actual;
+        try {
+            actual = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        } finally {
+            System.clearProperty(CircleStore.STORE_PROPERTY);
+        }
+        actual.solve();
+
+        assert actual.getOffHeapBytes() > 0;
+        // маленькое хранилище не занимает много прямой памяти
+        assert actual.getOffHeapBytes() <= 2 << 20;
+        assert OffHeapCircleStore.getMaxDirectMemory() >= actual.getOffHeapBytes();
+        assert expected.getCircles().equals(actual.getCircles());
+        assert expected.getCrossed().equals(actual.getCrossed());
+        assert expected.getPointing()[0].equals(actual.getPointing()[0]);
+        assert expected.getPointing()[1].equals(actual.getPointing()[1]);
+    }
+
+    /**
+     * Снимки делят память с хранилищем, но не видят его изменений
+     */
+    @Test
+    public void testSnapshotSharing() {
+        ArrayList<Circle> circles = randomCircles(3000, 5, 4);
+        for (CircleStore store : List.of(new HeapCircleStore(), new OffHeapCircleStore())) {
+            for (Circle c : circles)
+                store.add(c);
+            CircleStore first = store.snapshot();
+            long bytes = store.getOffHeapBytes();
+            // добавление в конец ничего не копирует
+            store.add(1, 2, 3);
+            assert store.getOffHeapBytes() == bytes;
+            CircleStore second = store.snapshot();
+            store.remove(10);
+            store.remove(0);
+            store.add(4, 5, 6);
+            CircleStore third = store.snapshot();
+            store.clear();
+            store.add(7, 8, 9);
+
+            assert first.asList().equals(circles);
+            assert second.size() == circles.size() + 1;
+            assert second.asList().subList(0, circles.size()).equals(circles);
+            assert second.rad(circles.size()) == 3;
+            ArrayList<Circle> expected = new ArrayList<>(circles);
+            expected.remove(10);
+            expected.remove(0);
+            assert third.asList().subList(0, expected.size()).equals(expected);
+            assert third.rad(third.size() - 1) == 6 && third.rad(third.size() - 2) == 3;
+            assert store.size() == 1 && store.rad(0) == 9;
+        }
+    }
+
+    /**
+     * Поддержка лучшей пары при добавлении и удалении окружностей
+     * даёт тот же ответ, что и перебор
+     */
+    @Test
+    public void testIncremental() {
+        ArrayList<Circle> circles = randomCircles(400, 2, 3);
+        Task expected = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>());
+        expected.setSolveMode(SolveMode.BRUTE_FORCE);
+        Task actual = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>());
+        actual.setSolveMode(SolveMode.INCREMENTAL);
+        for (int i = 0; i < circles.size(); i++) {
+            expected.addCircle(circles.get(i).center, circles.get(i).rad);
+            actual.addCircle(circles.get(i).center, circles.get(i).rad);
+            if (i % 50 == 0) {
+                expected.solve();
+                actual.solve();
+                assert expected.getCrossed().equals(actual.getCrossed());
+            }
+            // удаляем окружность, в том числе из лучшей пары
+            if (i % 70 == 69) {
+                int index = i % 140 == 69 ? 0 : actual.getCircles().indexOf(actual.getCrossed().get(0));
+                expected.removeCircle(index);
+                actual.removeCircle(index);
+            }
+        }
+        expected.solve();
+        actual.solve();
+        assert !actual.getCrossed().isEmpty();
+        assert expected.getCrossed().equals(actual.getCrossed());
+        assert expected.getPointing()[0].equals(actual.getPointing()[0]);
+    }
+
+    /**
+     * Сетка поддержки лучшей пары подстраивается под радиусы: окружность
+     * сравнивается только с соседями, а удаление не ломает лучшую пару
+     */
+    @Test
+    public void testIncrementalGrid() {
+        CoordinateSystem2d cs = new CoordinateSystem2d(-10, -10, 20, 20);
+        CircleStore store = CircleStore.create(0);
+        IncrementalSolver solver = new IncrementalSolver(store, cs);
+        // сначала крупные окружности, потом много мелких: сетка должна уменьшиться
+        for (Circle c : randomCircles(50, 10, 14)) {
+            store.add(c.center.x, c.center.y, c.rad);
+            solver.added();
+        }
+        for (Circle c : randomCircles(5000, 0.05, 15)) {
+            store.add(c.center.x, c.center.y, c.rad);
+            solver.added();
+        }
+        long tested = solver.getSolution().tested;
+        Random random = new Random(16);
+        store.add(random.nextDouble() * 20 - 10, random.nextDouble() * 20 - 10, 0.05);
+        solver.added();
+        // мелкая окружность проверяется с соседями и большими, а не со всеми
+        assert solver.getSolution().tested - tested < store.size() / 10;
+
+        for (int k = 0; k < 20; k++) {
+            Solution best = solver.getSolution();
+            int index = random.nextInt(store.size());
+            if (k % 5 == 0)
+                index = best.index1;
+            store.remove(index);
+            solver.removed(index);
+            Solution expected = new BruteForceSolver().solve(store, cs);
+            assert solver.getSolution().index1 == expected.index1;
+            assert solver.getSolution().index2 == expected.index2;
+        }
+        // наружу отдаётся копия
+        solver.getSolution().index1 = -1;
+        assert solver.getSolution().isFound();
+    }
+
+    /**
+     * После очистки задачи сетка INCREMENTAL строится под новые окружности,
+     * а не остаётся размеченной под прежнюю сцену
+     */
+    @Test
+    public void testIncrementalClear() {
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), randomCircles(20000, 10, 20));
+        task.setSolveMode(SolveMode.INCREMENTAL);
+        task.solve();
+        task.clear();
+        for (Circle c : randomCircles(5000, 0.05, 21))
+            task.addCircle(c.center, c.rad);
+        task.solve();
+        long tested = task.getSolution().tested;
+        task.addCircle(new Vector2d(1, 1), 0.05);
+        task.solve();
+        // новая окружность проверяется с соседями, а не со всеми
+        assert task.getSolution().tested - tested < task.getCircles().size() / 10;
+    }
+
+    /**
+     * Самые длинные отрезки совпадают с перебором всех пар
+     */
+    @Test
+    public void testTopChords() {
+        ArrayList<Circle> circles = randomCircles(500, 1, 4);
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), circles);
+        task.solveTop(50);
+        TopChords top = task.getTopChords();
+
+        // все длины отрезков перебором
+        ArrayList<Double> lens = new ArrayList<>();
+        for (int i = 0; i < circles.size(); i++)
+            for (int j = i + 1; j < circles.size(); j++) {
+                Circle a = circles.get(i), b = circles.get(j);
+                if (Intersections.isCrossed(a.center.x, a.center.y, a.rad, b.center.x, b.center.y, b.rad))
+                    lens.add(Intersections.chordLength(a.center.x, a.center.y, a.rad, b.center.x, b.center.y, b.rad));
+            }
+        lens.sort(Comparator.reverseOrder());
+
+        assert top.size() == 50;
+        for (int k = 0; k < top.size(); k++)
+            assert top.len(k) == lens.get(k);
+
+        // первый отрезок - ответ задачи
+        task.solve();
+        assert task.getCircles().get(top.index1(0)).equals(task.getCrossed().get(0));
+        assert task.getCircles().get(top.index2(0)).equals(task.getCrossed().get(1));
+    }
+
+    /**
+     * Отрезки и сетка режима INCREMENTAL, найденные по снимку,
+     * применяются, только если задача с тех пор не менялась
+     */
+    @Test
+    public void testApplyByRevision() {
+        ArrayList<Circle> circles = randomCircles(500, 1, 4);
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        Scene scene = task.getScene();
+        TopChords top = Task.findTop(scene, 10);
+        task.addCircle(new Vector2d(0, 0), 1);
+        assert !task.applyTop(scene, top);
+        assert task.getTopChords() == null;
+        scene = task.getScene();
+        assert task.applyTop(scene, Task.findTop(scene, 10));
+        assert task.getTopChords().size() == 10;
+
+        Task expected = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        expected.setSolveMode(SolveMode.BRUTE_FORCE);
+        expected.solve();
+        task.removeCircle(circles.size());
+        task.setSolveMode(SolveMode.INCREMENTAL);
+        scene = task.getScene();
+        IncrementalSolver solver = Task.buildIncremental(scene);
+        assert task.applyIncremental(scene, solver);
+        assert task.hasIncremental();
+        assert task.getCrossed().equals(expected.getCrossed());
+        // дальше сетка поддерживается на хранилище задачи, а не на снимке
+        task.addCircle(new Vector2d(1, 1), 2);
+        assert scene.circles.size() == circles.size();
+        task.solve();
+        expected.addCircle(new Vector2d(1, 1), 2);
+        expected.solve();
+        assert task.getCrossed().equals(expected.getCrossed());
+    }
+
+    /**
+     * Потоковое решение по файлу совпадает с решением в памяти
+     *
+     * @throws IOException ошибка работы с временным файлом
+     */
+    @Test
+    public void testStreaming() throws IOException {
+        ArrayList<Circle> circles = randomCircles(2000, 0.5, 5);
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        File file = File.createTempFile("task", ".json");
+        try {
+            new ObjectMapper().writeValue(file, task);
+            task.setSolveMode(SolveMode.BRUTE_FORCE);
+            task.solve();
+
+            // полосы по 100 окружностей
+            StreamingSolver solver = new StreamingSolver(100, s -> {
+            });
+            Solution solution = solver.solve(file);
+            assert solution.isFound();
+            assert solver.getCrossed().equals(task.getCrossed());
+            assert solver.getPointing()[0].equals(task.getPointing()[0]);
+            assert solver.getPeakMemory() > 0;
+            assert solver.getPeakStrip() <= 100;
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Бюджет соблюдается и для широких окружностей, задевающих все полосы,
+     * и для плотной кучи, которую не разделить ни по одной оси
+     */
+    @Test
+    public void testStreamingBudget() throws IOException {
+        ArrayList<Circle> circles = randomCircles(1500, 0.3, 17);
+        // широкие окружности попадают во все полосы
+        for (Circle c : randomCircles(150, 0, 18))
+            circles.add(new Circle(c.center, 15));
+        // одинаковые окружности в одной точке не делятся ни по x, ни по y
+        for (int i = 0; i < 150; i++)
+            circles.add(new Circle(new Vector2d(3, 3), 0.5 + i * 1e-3));
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        File file = File.createTempFile("task", BinaryScene.EXTENSION);
+        try {
+            SceneFiles.write(task, file);
+            task.setSolveMode(SolveMode.BRUTE_FORCE);
+            task.solve();
+
+            StreamingSolver solver = new StreamingSolver(100, s -> {
+            });
+            Solution solution = solver.solve(file);
+            assert solver.getPeakStrip() <= 100;
+            assert solver.getCrossed().equals(task.getCrossed());
+            // каждая пара проверяется один раз
+            assert solution.tested <= (long) circles.size() * (circles.size() - 1) / 2;
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Версия слоя окружностей меняется только при изменении задачи
+     */
+    @Test
+    public void testRevision() {
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), randomCircles(100, 1, 6));
+        long revision = task.getRevision();
+        task.cancel();
+        assert task.getRevision() == revision;
+
+        task.solve();
+        assert task.isSolved();
+        assert task.getRevision() > revision;
+        revision = task.getRevision();
+        task.solveTop(10);
+        assert task.getRevision() > revision;
+        revision = task.getRevision();
+        task.cancel();
+        assert task.getRevision() == revision;
+
+        task.addCircle(new Vector2d(0, 0), 1);
+        assert task.getRevision() > revision;
+        revision = task.getRevision();
+        task.clear();
+        assert task.getRevision() > revision;
+    }
+
+    /**
+     * Приближение и отдаление относительно центра возвращают исходную видимую область
+     */
+    @Test
+    public void testZoom() {
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>());
+        task.zoom(3);
+        assert task.getZoom() == 3;
+        assert task.getViewCS().getSize().x < 20;
+        assert Math.abs(task.getViewCS().getMin().x + task.getViewCS().getSize().x / 2) < 1e-9;
+        task.zoom(-3);
+        assert task.getZoom() == 0;
+        assert Math.abs(task.getViewCS().getSize().x - 20) < 1e-9;
+        assert Math.abs(task.getViewCS().getMin().y + 10) < 1e-9;
+
+        task.zoom(1000);
+        int maxZoom = task.getZoom();
+        task.zoom(1);
+        assert task.getZoom() == maxZoom;
+        task.resetView();
+        assert task.getViewCS().equals(task.getOwnCS());
+    }
+
+    /**
+     * Ломаная из таблицы отклоняется от окружности не больше допустимого
+     */
+    @Test
+    public void testUnitCircles() {
+        Random random = new Random(7);
+        for (int t = 0; t < 1000; t++) {
+            double radPx = Math.exp(random.nextDouble() * 8);
+            int level = UnitCircles.level(radPx);
+            int segments = UnitCircles.segments(level);
+            double[] table = UnitCircles.table(level);
+            assert table.length == 2 * segments;
+            assert table == UnitCircles.table(level);
+            // отрезков не хватает, только если их кол-во упёрлось в максимум
+            if (radPx * (1 - Math.cos(Math.PI / segments)) > UnitCircles.TOLERANCE)
+                assert UnitCircles.level(radPx * 2) == level;
+            // уровнем ниже отрезков уже не хватает
+            if (level > 0)
+                assert radPx * (1 - Math.cos(Math.PI / UnitCircles.segments(level - 1))) > UnitCircles.TOLERANCE;
+            int k = random.nextInt(segments);
+            assert Math.abs(table[2 * k] - Math.cos(2 * Math.PI * k / segments)) < 1e-12;
+            assert Math.abs(table[2 * k + 1] - Math.sin(2 * Math.PI * k / segments)) < 1e-12;
+        }
+    }
+
+    /**
+     * Отсечение и детализация окружностей при рисовании считаются без Skija
+     */
+    @Test
+    public void testPainterDetail() {
+        // видимая область 800 x 600
+        assert CirclePainter.detail(-50, 300, 40, 40, 0, 0, 800, 600) == CirclePainter.CULLED;
+        assert CirclePainter.detail(400, 650, 40, 40, 0, 0, 800, 600) == CirclePainter.CULLED;
+        // задевает край - рисуется
+        assert CirclePainter.detail(-30, 300, 40, 40, 0, 0, 800, 600) >= 0;
+        assert CirclePainter.detail(400, 300, 0.4, 0.4, 0, 0, 800, 600) == CirclePainter.POINT;
+        assert CirclePainter.detail(400, 300, 5, 0.5, 0, 0, 800, 600) == UnitCircles.level(5);
+
+        Random random = new Random(19);
+        for (int t = 0; t < 100; t++) {
+            double sx = random.nextDouble() * 800, sy = random.nextDouble() * 600;
+            double rad = 1 + random.nextDouble() * 500;
+            int level = CirclePainter.detail(sx, sy, rad, rad, 0, 0, 800, 600);
+            float[] vertices = new float[2 * UnitCircles.segments(level)];
+            CirclePainter.polygon(vertices, sx, sy, rad, rad, level);
+            for (int k = 0; k < vertices.length; k += 2) {
+                // вершины лежат на окружности
+                assert Math.abs(Math.hypot(vertices[k] - sx, vertices[k + 1] - sy) - rad) < 1e-3 * rad;
+                // середины отрезков отклоняются не больше допустимого
+                int next = (k + 2) % vertices.length;
+                double mx = (vertices[k] + vertices[next]) / 2, my = (vertices[k + 1] + vertices[next + 1]) / 2;
+                assert rad - Math.hypot(mx - sx, my - sy) <= UnitCircles.TOLERANCE + 1e-3;
+            }
+        }
+    }
+
+    /**
+     * Задача из файла рисуется без окна в PNG
+     *
+     * @throws IOException ошибка работы с файлами
+     */
+    @Test
+    public void testHeadlessRender() throws IOException {
+        File dir = Files.createTempDirectory("render").toFile();
+        File scene = new File(dir, "conf" + BinaryScene.EXTENSION);
+        File png = new File(dir, "conf.png");
+        try {
+            Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), randomCircles(100, 0.2, 5));
+            task.solve();
+            SceneFiles.write(task.getScene(), scene, new Progress());
+            HeadlessRenderer.renderAll(Map.of(png, SceneFiles.read(scene)), 320, 240);
+            byte[] bytes = Files.readAllBytes(png.toPath());
+            // сигнатура PNG
+            assert bytes.length >= 8;
+            assert (bytes[0] & 0xff) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G';
+        } finally {
+            scene.delete();
+            png.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Заголовок сжатого двоичного файла с завышенным кол-вом окружностей
+     * не заставляет выделять под них память: чтение падает на конце данных
+     *
+     * @throws IOException ошибка работы с потоками
+     */
+    @Test
+    public void testBinaryHeaderCount() throws IOException {
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), randomCircles(100, 1, 6));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryScene.write(task.getScene(), Channels.newChannel(out), new Progress());
+        byte[] bytes = out.toByteArray();
+        // кол-во окружностей - последнее поле заголовка
+        ByteBuffer.wrap(bytes, BinaryScene.HEADER_SIZE - Long.BYTES, Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN).putLong(Integer.MAX_VALUE);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream gzip = Codec.GZIP.encode(compressed)) {
+            gzip.write(bytes);
+        }
+        boolean thrown = false;
+        try (InputStream in = Codec.GZIP.decode(new ByteArrayInputStream(compressed.toByteArray()))) {
+            BinaryScene.read(Channels.newChannel(in), new Progress());
+        } catch (EOFException e) {
+            thrown = true;
+        }
+        assert thrown;
+    }
+
+    /**
+     * Кольцевой буфер хранит последние элементы от всех потоков
+     *
+     * @throws InterruptedException прерывание ожидания потоков
+     */
+    @Test
+    public void testRingBuffer() throws InterruptedException {
+        RingBuffer<Integer> buffer = new RingBuffer<>(100);
+        for (int i = 0; i < 250; i++)
+            buffer.add(i);
+        assert buffer.size() == 100;
+        assert buffer.getLast(0, 3).equals(List.of(249, 248, 247));
+        assert buffer.getLast(98, 10).equals(List.of(151, 150));
+
+        buffer.clear();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++)
+                    buffer.add(i);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assert buffer.getAdded() == 40000;
+        assert buffer.getLast(0, 1000).size() == 100;
+
+        PanelLog.info("первая\nвторая");
+        assert PanelLog.getLast(2).equals(List.of("вторая", "первая"));
+    }
+
+    /**
+     * Решение по снимку сцены применяется, только если задача не менялась
+     */
+    @Test
+    public void testScene() {
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), randomCircles(300, 1, 8));
+        Scene scene = task.getScene();
+        assert task.getScene() == scene;
+
+        Solution solution = Task.solve(scene, SolveMode.SWEEP);
+        task.addCircle(new Vector2d(0, 0), 1);
+        // снимок не видит новой окружности, а ответ по нему устарел
+        assert scene.circles.size() == 300;
+        assert !task.applySolution(scene, solution);
+        assert !task.isSolved();
+
+        scene = task.getScene();
+        assert scene.circles.size() == 301;
+        assert task.applySolution(scene, Task.solve(scene, SolveMode.SWEEP));
+        ArrayList<Circle> crossed = new ArrayList<>(task.getCrossed());
+
+        task.cancel();
+        task.setSolveMode(SolveMode.BRUTE_FORCE);
+        task.solve();
+        assert task.getCrossed().equals(crossed);
+        assert task.getScene().answer1 >= 0;
+    }
+
+    /**
+     * Двоичный файл задачи читается так же, как записывался
+     *
+     * @throws IOException ошибка работы с временным файлом
+     */
+    @Test
+    public void testBinaryScene() throws IOException {
+        ArrayList<Circle> circles = randomCircles(5000, 0.1, 9);
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        File file = File.createTempFile("task", BinaryScene.EXTENSION);
+        try {
+            SceneFiles.write(task, file);
+            assert file.length() == BinaryScene.HEADER_SIZE + (long) circles.size() * BinaryScene.CIRCLE_SIZE;
+            Task loaded = SceneFiles.read(file);
+            assert loaded.getOwnCS().equals(task.getOwnCS());
+            assert loaded.getCircles().equals(circles);
+
+            // потоковое чтение выбирает формат по расширению
+            int cnt = 0;
+            try (CircleReader reader = CircleReader.open(file)) {
+                while (reader.next()) {
+                    assert reader.x() == circles.get(cnt).center.x;
+                    assert reader.rad() == circles.get(cnt).rad;
+                    cnt++;
+                }
+            }
+            assert cnt == circles.size();
+
+            task.setSolveMode(SolveMode.BRUTE_FORCE);
+            task.solve();
+            StreamingSolver solver = new StreamingSolver(500, s -> {
+            });
+            assert solver.solve(file).isFound();
+            assert solver.getCrossed().equals(task.getCrossed());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Отображённый в память файл решается так же, как загруженный,
+     * а изменения не затрагивают файл и снимки
+     *
+     * @throws IOException ошибка работы с временным файлом
+     */
+    @Test
+    public void testMappedStore() throws IOException {
+        ArrayList<Circle> circles = randomCircles(3000, 0.2, 10);
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        File file = File.createTempFile("task", BinaryScene.EXTENSION);
+        try {
+            SceneFiles.write(task, file);
+            System.setProperty(CircleStore.STORE_PROPERTY, "mapped");
+            Task mapped;
+            try {
+                mapped = SceneFiles.read(file);
+            } finally {
+                System.clearProperty(CircleStore.STORE_PROPERTY);
+            }
+            assert mapped.getCircles().equals(circles);
+            // сохранение проверяет, не отображён ли заменяемый файл
+            assert MappedCircleStore.isFileMapped(file.toPath());
+
+            task.solve();
+            mapped.solve();
+            assert mapped.getCrossed().equals(task.getCrossed());
+
+            Scene scene = mapped.getScene();
+            mapped.addCircle(new Vector2d(0, 0), 1);
+            mapped.removeCircle(0);
+            assert mapped.getCircles().size() == circles.size();
+            assert mapped.getCircles().get(0).equals(circles.get(1));
+            // снимок и файл остались прежними
+            assert scene.circles.size() == circles.size();
+            assert scene.circles.get(0).equals(circles.get(0));
+            assert SceneFiles.read(file).getCircles().equals(circles);
+
+            // удаления в случайных местах файла и среди добавленных окружностей
+            // дают тот же порядок, что и у списка, а в кучу файл не копируется
+            ArrayList<Circle> expected = new ArrayList<>(circles.subList(1, circles.size()));
+            expected.add(new Circle(new Vector2d(0, 0), 1));
+            Random random = new Random(22);
+            for (int k = 0; k < 200; k++) {
+                if (k % 3 == 0) {
+                    Circle c = new Circle(new Vector2d(k, -k), k + 1);
+                    mapped.addCircle(c.center, c.rad);
+                    expected.add(c);
+                } else {
+                    int index = random.nextInt(expected.size());
+                    mapped.removeCircle(index);
+                    expected.remove(index);
+                }
+                if (k % 50 == 0)
+                    assert mapped.getCircles().equals(expected);
+            }
+            assert mapped.getCircles().equals(expected);
+            assert mapped.getScene().circles.asList().equals(expected);
+            mapped.clear();
+            assert mapped.getCircles().isEmpty();
+            mapped.addCircle(new Vector2d(1, 2), 3);
+            assert mapped.getCircles().equals(List.of(new Circle(new Vector2d(1, 2), 3)));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Проверка потокового json: запись совпадает с databinding Jackson, а чтение
+     * понимает и файлы, записанные через databinding, с любым порядком полей
+     */
+    @Test
+    public void testJsonScene() throws IOException {
+        ArrayList<Circle> circles = randomCircles(1000, 0.2, 11);
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        ObjectMapper mapper = new ObjectMapper();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<Long> progress = new ArrayList<>();
+        JsonScene.write(task.getScene(), out, progress::add);
+        assert out.toString().equals(mapper.writeValueAsString(task));
+        assert progress.get(progress.size() - 1) == circles.size();
+
+        Task read = JsonScene.read(new ByteArrayInputStream(mapper.writeValueAsBytes(task)), cnt -> {
+        });
+        assert read.getOwnCS().getMin().equals(task.getOwnCS().getMin());
+        assert read.getOwnCS().getMax().equals(task.getOwnCS().getMax());
+        assert read.getCircles().equals(circles);
+
+        String reordered = "{\"circles\":[{\"rad\":2.0,\"center\":{\"y\":1.0,\"x\":0.5}}]," +
+                "\"solved\":false,\"ownCS\":{\"min\":{\"x\":-1.0,\"y\":-1.0},\"max\":{\"x\":1.0,\"y\":1.0}}}";
+        read = JsonScene.read(new ByteArrayInputStream(reordered.getBytes()), cnt -> {
+        });
+        assert read.getCircles().equals(List.of(new Circle(new Vector2d(0.5, 1.0), 2.0)));
+        assert read.getOwnCS().getMax().equals(new Vector2d(1, 1));
+    }
+
+    /**
+     * Поле radius, которое принимает databinding через конструктор окружности,
+     * потоковое чтение понимает так же, как rad
+     */
+    @Test
+    public void testJsonRadiusAlias() throws IOException {
+        String json = "{\"@class\":\"app.Task\",\"ownCS\":{\"min\":{\"x\":-1.0,\"y\":-1.0},\"max\":{\"x\":1.0,\"y\":1.0}}," +
+                "\"circles\":[{\"center\":{\"x\":0.5,\"y\":1.0},\"radius\":2.0}],\"solved\":false}";
+        Task expected = new ObjectMapper().readValue(json, Task.class);
+        Task read = JsonScene.read(new ByteArrayInputStream(json.getBytes()), cnt -> {
+        });
+        assert expected.getCircles().equals(List.of(new Circle(new Vector2d(0.5, 1.0), 2.0)));
+        assert read.getCircles().equals(expected.getCircles());
+    }
+
+    /**
+     * Окружности из json файла передаются задаче порциями
+     *
+     * @throws IOException ошибка работы с потоками
+     */
+    @Test
+    public void testJsonChunks() throws IOException {
+        ArrayList<Circle> circles = randomCircles(2 * JsonScene.CHUNK_SIZE + 100, 0.2, 13);
+        Task source = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonScene.write(source.getScene(), out, cnt -> {
+        });
+
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles.subList(0, 5)));
+        List<Integer> sizes = new ArrayList<>();
+        long revision = task.getRevision();
+        CoordinateSystem2d ownCS = JsonScene.read(new ByteArrayInputStream(out.toByteArray()), chunk -> {
+            sizes.add(chunk.size());
+            task.addCircles(chunk);
+        }, cnt -> {
+        });
+        assert ownCS.getMax().equals(source.getOwnCS().getMax());
+        assert sizes.equals(List.of(JsonScene.CHUNK_SIZE, JsonScene.CHUNK_SIZE, 100));
+        // каждая порция - одна версия задачи
+        assert task.getRevision() == revision + 3;
+        assert task.getCircles().subList(5, task.getCircles().size()).equals(circles);
+    }
+
+    /**
+     * Проверка записи через временный файл: отменённая запись не трогает
+     * прежний файл и не оставляет временных, ход работы считает байты и окружности
+     */
+    @Test
+    public void testSafeSave() throws IOException {
+        ArrayList<Circle> circles = randomCircles(100000, 0.2, 12);
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        Task small = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles.subList(0, 10)));
+        for (String ext : List.of(".json", BinaryScene.EXTENSION)) {
+            File dir = Files.createTempDirectory("scene").toFile();
+            File file = new File(dir, "conf" + ext);
+            try {
+                Progress progress = new Progress();
+                SceneFiles.write(small.getScene(), file, progress);
+                assert progress.getBytes() == file.length();
+                assert progress.getCircles() == 10;
+
+                Progress cancelled = new Progress();
+                cancelled.cancel();
+                boolean thrown = false;
+                try {
+                    SceneFiles.write(task.getScene(), file, cancelled);
+                } catch (CancellationException e) {
+                    thrown = true;
+                }
+                assert thrown;
+                assert dir.list().length == 1;
+                assert SceneFiles.read(file).getCircles().equals(small.getCircles());
+
+                SceneFiles.write(task.getScene(), file, new Progress());
+                progress = new Progress();
+                assert SceneFiles.read(file, progress).getCircles().equals(circles);
+                assert progress.getBytes() == file.length();
+                assert progress.getCircles() == circles.size();
+
+                // права файла сохраняются при перезаписи, а не сбрасываются до владельца
+                if (file.toPath().getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                    Set<PosixFilePermission> perms = PosixFilePermissions.fromString("rw-r-----");
+                    Files.setPosixFilePermissions(file.toPath(), perms);
+                    SceneFiles.write(small.getScene(), file, new Progress());
+                    assert Files.getPosixFilePermissions(file.toPath()).equals(perms);
+                }
+            } finally {
+                for (File f : dir.listFiles())
+                    f.delete();
+                dir.delete();
+            }
+        }
+    }
+
+    /**
+     * Проверка сжатых файлов: оба формата с обоими способами сжатия читаются
+     * обратно, сжатие определяется по первым байтам, а не по имени
+     */
+    @Test
+    public void testCompressedScene() throws IOException {
+        ArrayList<Circle> circles = randomCircles(20000, 0.2, 13);
+        Task task = new Task(new CoordinateSystem2d(-10, -10, 20, 20), new ArrayList<>(circles));
+        for (String ext : List.of(".json", BinaryScene.EXTENSION))
+            for (Codec codec : List.of(Codec.GZIP, Codec.DEFLATE)) {
+                File dir = Files.createTempDirectory("scene").toFile();
+                File file = new File(dir, "conf" + ext + codec.getExtension());
+                try {
+                    Progress progress = new Progress();
+                    SceneFiles.write(task.getScene(), file, progress);
+                    assert Codec.detect(file) == codec;
+                    assert progress.getFileBytes() == file.length();
+                    assert file.length() < progress.getBytes();
+
+                    progress = new Progress();
+                    assert SceneFiles.read(file, progress).getCircles().equals(circles);
+                    assert progress.getCircles() == circles.size();
+                    assert progress.getFileBytes() == file.length();
+
+                    // сжатый файл без расширения сжатия тоже распаковывается
+                    File renamed = new File(dir, "renamed" + ext);
+                    assert file.renameTo(renamed);
+                    assert SceneFiles.read(renamed).getCircles().equals(circles);
+                    int cnt = 0;
+                    try (CircleReader reader = CircleReader.open(renamed)) {
+                        while (reader.next())
+                            assert reader.rad() == circles.get(cnt++).rad;
+                    }
+                    assert cnt == circles.size();
+                } finally {
+                    for (File f : dir.listFiles())
+                        f.delete();
+                    dir.delete();
+                }
+            }
+        assert Codec.detect('{', '"') == Codec.NONE;
+        assert Codec.detect('C', 'I') == Codec.NONE;
+    }
 }